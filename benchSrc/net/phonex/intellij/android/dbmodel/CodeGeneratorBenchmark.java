@@ -0,0 +1,127 @@
+package net.phonex.intellij.android.dbmodel;
+
+import com.intellij.psi.PsiField;
+import net.phonex.intellij.android.dbmodel.spec.FieldSpec;
+import net.phonex.intellij.android.dbmodel.spec.ModelSpec;
+import net.phonex.intellij.android.dbmodel.spec.ModelTextGenerator;
+import net.phonex.intellij.android.dbmodel.typeserializers.TypeSerializer;
+import net.phonex.intellij.android.dbmodel.typeserializers.serializers.BooleanPrimitiveSerializer;
+import net.phonex.intellij.android.dbmodel.typeserializers.serializers.DateSerializer;
+import net.phonex.intellij.android.dbmodel.typeserializers.serializers.NullablePrimitivesSerializer;
+import net.phonex.intellij.android.dbmodel.typeserializers.serializers.PrimitiveArraySerializer;
+import net.phonex.intellij.android.dbmodel.typeserializers.serializers.PrimitiveTypeSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Throughput and allocation rate of the text building stage, {@link ModelTextGenerator}, on synthetic
+ * model specifications. Parcel code of the fields comes from the serializers the default chain resolves
+ * for their types, fields are mocked as the serializers only need the name. Parsing and insertion are not measured.
+ * Run main() to get the results with the GC profiler.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodeGeneratorBenchmark {
+    private static final String[] FIELD_TYPES = new String[] {
+            "int", "long", "java.lang.String", "boolean", "double",
+            "java.lang.Integer", "java.lang.Long", "java.util.Date", "byte[]", "float"};
+    private static final String[] SQL_TYPES = new String[] {
+            "INTEGER DEFAULT 0", "INTEGER DEFAULT 0", "TEXT", "INTEGER DEFAULT 0", "INTEGER DEFAULT 0",
+            "INTEGER DEFAULT 0", "INTEGER DEFAULT 0", "INTEGER DEFAULT 0", "BLOB", "INTEGER DEFAULT 0"};
+    private static final TypeSerializer[] SERIALIZERS = new TypeSerializer[] {
+            new PrimitiveTypeSerializer("Int"), new PrimitiveTypeSerializer("Long"), new PrimitiveTypeSerializer("String"),
+            new BooleanPrimitiveSerializer(), new PrimitiveTypeSerializer("Double"),
+            new NullablePrimitivesSerializer("java.lang.Integer"), new NullablePrimitivesSerializer("java.lang.Long"),
+            new DateSerializer(), new PrimitiveArraySerializer("Byte"), new PrimitiveTypeSerializer("Float")};
+
+    @Param({"10", "100", "1000", "5000"})
+    public int fieldCount;
+
+    private ModelTextGenerator generator;
+
+    @Setup
+    public void setUp() {
+        List<FieldSpec> fields = new ArrayList<FieldSpec>(fieldCount);
+        for (int i = 0; i < fieldCount; i++) {
+            final String name = i == 0 ? "id" : "field" + i;
+            final String type = FIELD_TYPES[i % FIELD_TYPES.length];
+            final TypeSerializer serializer = SERIALIZERS[i % SERIALIZERS.length];
+            final PsiField field = mock(PsiField.class);
+            when(field.getName()).thenReturn(name);
+
+            fields.add(FieldSpec.builder(name, type)
+                    .primitive(Character.isLowerCase(type.charAt(0)) && !type.endsWith("[]"))
+                    .sqlType(SQL_TYPES[i % SQL_TYPES.length])
+                    .serializer(serializer.getClass().getSimpleName(), serializer.writeValue(field, "dest", "flags"),
+                            serializer.readValue(field, "in"))
+                    .build());
+        }
+
+        generator = new ModelTextGenerator(new ModelSpec("BenchModel", "net.phonex.bench.BenchModel", fields,
+                Collections.<ModelSpec.IndexSpec>emptyList()));
+    }
+
+    @Benchmark
+    public String generateConstructor() {
+        return generator.generateConstructor();
+    }
+
+    @Benchmark
+    public String generateWriteToParcel() {
+        return generator.generateWriteToParcel();
+    }
+
+    @Benchmark
+    public String generateCreateTable() {
+        return generator.generateCreateTable();
+    }
+
+    @Benchmark
+    public String generateCreateFromCursor() {
+        return generator.generateCreateFromCursor();
+    }
+
+    @Benchmark
+    public String generateGetDbContentValues() {
+        return generator.generateGetDbContentValues();
+    }
+
+    @Benchmark
+    public String generateBindTo() {
+        return generator.generateBindTo();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(CodeGeneratorBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
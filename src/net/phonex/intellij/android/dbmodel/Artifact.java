@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2015 Dusan Klinec Ph4r05.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.phonex.intellij.android.dbmodel;
+
+/**
+ * Generated artifacts, in the order they are generated when combined.
+ */
+public enum Artifact {
+    FIELDS("DB fields") {
+        @Override
+        public void generate(CodeGenerator generator) {
+            generator.generateFields();
+        }
+    },
+    FULL_PROJECTION("DB full projection") {
+        @Override
+        public void generate(CodeGenerator generator) {
+            generator.generateFullProjection();
+        }
+    },
+    CREATE_TABLE("createTable()") {
+        @Override
+        public void generate(CodeGenerator generator) {
+            generator.generateCreateTable();
+        }
+    },
+    FULL_TEXT_SEARCH("Full-text search") {
+        @Override
+        public void generate(CodeGenerator generator) {
+            generator.generateFullTextSearch();
+        }
+    },
+    PAGINATION("Keyset pagination") {
+        @Override
+        public void generate(CodeGenerator generator) {
+            generator.generatePagination();
+        }
+    },
+    CREATE_FROM_CURSOR("createFromCursor()") {
+        @Override
+        public void generate(CodeGenerator generator) {
+            generator.generateCreateFromCursor();
+        }
+    },
+    CREATE_FROM_CURSOR_FULL_PROJECTION("createFromCursorFullProjection()") {
+        @Override
+        public void generate(CodeGenerator generator) {
+            generator.generateCreateFromCursorFullProjection();
+        }
+    },
+    CREATE_FROM_CURSOR_COLUMN_MAP("createFromCursor(Cursor, ColumnMap)") {
+        @Override
+        public void generate(CodeGenerator generator) {
+            generator.generateCreateFromCursorColumnMap();
+        }
+    },
+    DB_CONTENT_VALUES("getDbContentValues()") {
+        @Override
+        public void generate(CodeGenerator generator) {
+            generator.generateGetDbContentValues();
+        }
+    },
+    INSERT_STATEMENT("insertAll() with SQLiteStatement") {
+        @Override
+        public void generate(CodeGenerator generator) {
+            generator.generateInsertStatement();
+        }
+    },
+    DIRTY_TRACKING("Dirty field tracking") {
+        @Override
+        public void generate(CodeGenerator generator) {
+            generator.generateDirtyTracking();
+        }
+    },
+    PARCELABLE("Parcelable") {
+        @Override
+        public void generate(CodeGenerator generator) {
+            generator.generate();
+        }
+    };
+
+    private final String text;
+
+    Artifact(String text) {
+        this.text = text;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public abstract void generate(CodeGenerator generator);
+}
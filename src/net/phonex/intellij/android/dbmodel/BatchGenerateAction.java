@@ -0,0 +1,301 @@
+/*
+ * Copyright (C) 2015 Dusan Klinec Ph4r05.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.phonex.intellij.android.dbmodel;
+
+import com.intellij.notification.Notification;
+import com.intellij.notification.NotificationType;
+import com.intellij.notification.Notifications;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.LangDataKeys;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.module.Module;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ModuleRootManager;
+import com.intellij.openapi.util.Computable;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.*;
+import net.phonex.intellij.android.dbmodel.typeserializers.SerializerResolver;
+import net.phonex.intellij.android.dbmodel.typeserializers.TypeSerializerFactory;
+import net.phonex.intellij.android.dbmodel.util.PsiUtils;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Regenerates selected artifacts for every model class, declaring TABLE or FIELD_* constants, in the selected
+ * package, directory or module. Classes are analyzed and their members built and parsed in the background, each
+ * in a short read action, see {@link CodeGenerator#prepare(java.util.Set)}. Write commands of {@link #BATCH_SIZE}
+ * classes then only insert the prepared members, so the UI stays responsive. Existing generated members are replaced
+ * in place. Classes whose file changed in between, by other than this action, are skipped.
+ */
+public class BatchGenerateAction extends AnAction {
+    public static final String NOTIFICATION_GROUP = "DB model generator";
+    private static final int BATCH_SIZE = 20;
+
+    @Override
+    public void actionPerformed(AnActionEvent e) {
+        final Project project = e.getProject();
+        final List<PsiDirectory> roots = getRootDirectories(e);
+        if (project == null || roots.isEmpty()) {
+            return;
+        }
+
+        BatchGenerateDialog dlg = new BatchGenerateDialog(project, "Select artifacts to generate for all classes");
+        dlg.show();
+
+        final EnumSet<Artifact> artifacts = dlg.getSelectedArtifacts();
+        if (!dlg.isOK() || artifacts.isEmpty()) {
+            return;
+        }
+
+        ProgressManager.getInstance().run(new Task.Backgroundable(project, "Generating DB models", true) {
+            @Override
+            public void run(@NotNull ProgressIndicator indicator) {
+                generate(project, roots, artifacts, indicator);
+            }
+        });
+    }
+
+    private void generate(final Project project, final List<PsiDirectory> roots, final EnumSet<Artifact> artifacts,
+                          final ProgressIndicator indicator) {
+        indicator.setText("Collecting model classes");
+        final List<PsiClass> classes = ApplicationManager.getApplication().runReadAction(new Computable<List<PsiClass>>() {
+            @Override
+            public List<PsiClass> compute() {
+                List<PsiClass> result = new ArrayList<PsiClass>();
+                for (PsiDirectory root : roots) {
+                    collectClasses(root, result);
+                }
+                return result;
+            }
+        });
+
+        // Field analysis, serializer resolution and text building, one short read action per class.
+        final Map<PsiClass, String> failed = new LinkedHashMap<PsiClass, String>();
+        final GenerationMetrics metrics = new GenerationMetrics();
+        final TypeSerializerFactory serializers = SerializerResolver.getInstance(project).newRun();
+        final List<ModelJob> jobs = new ArrayList<ModelJob>();
+        for (int i = 0; i < classes.size(); i++) {
+            indicator.checkCanceled();
+            indicator.setFraction(0.5 * i / classes.size());
+
+            final PsiClass psiClass = classes.get(i);
+            ModelJob job = ApplicationManager.getApplication().runReadAction(new Computable<ModelJob>() {
+                @Override
+                public ModelJob compute() {
+                    if (!psiClass.isValid()) {
+                        return null;
+                    }
+
+                    indicator.setText2(psiClass.getQualifiedName());
+                    final List<PsiField> fields = PsiUtils.getModelFields(psiClass);
+                    if (fields.isEmpty()) {
+                        return null;
+                    }
+
+                    final EnumSet<Artifact> classArtifacts = EnumSet.copyOf(artifacts);
+                    if (classArtifacts.contains(Artifact.DIRTY_TRACKING) && fields.size() > CodeGenerator.DIRTY_MASK_BITS) {
+                        failed.put(psiClass, "dirty tracking: too many fields");
+                        classArtifacts.remove(Artifact.DIRTY_TRACKING);
+                    }
+
+                    try {
+                        final CodeGenerator generator = new CodeGenerator(psiClass, fields, serializers)
+                                .setMetrics(metrics).setReplaceExisting(true).prepare(classArtifacts);
+                        return new ModelJob(psiClass, generator, classArtifacts, CodeGenerator.getAffectedFiles(psiClass, fields, serializers),
+                                psiClass.getContainingFile().getModificationStamp());
+                    } catch (RuntimeException ex) {
+                        failed.put(psiClass, String.valueOf(ex.getMessage()));
+                        return null;
+                    }
+                }
+            });
+
+            if (job != null) {
+                jobs.add(job);
+            }
+        }
+
+        // Insertion of prepared members, batched write commands. Stamps of files written by the batch itself.
+        final Map<PsiFile, Long> written = new HashMap<PsiFile, Long>();
+        for (int start = 0; start < jobs.size(); start += BATCH_SIZE) {
+            indicator.checkCanceled();
+            indicator.setFraction(0.5 + 0.5 * start / jobs.size());
+
+            final List<ModelJob> batch = jobs.subList(start, Math.min(start + BATCH_SIZE, jobs.size()));
+            ApplicationManager.getApplication().invokeAndWait(new Runnable() {
+                @Override
+                public void run() {
+                    applyBatch(project, batch, failed, written);
+                }
+            }, ModalityState.defaultModalityState());
+        }
+
+        final Set<PsiClass> processed = new LinkedHashSet<PsiClass>(failed.keySet());
+        for (ModelJob job : jobs) {
+            processed.add(job.psiClass);
+        }
+
+        String content = "Generated " + (processed.size() - failed.size()) + " of " + processed.size() + " classes.";
+        if (!failed.isEmpty()) {
+            List<String> reasons = new ArrayList<String>();
+            for (Map.Entry<PsiClass, String> entry : failed.entrySet()) {
+                reasons.add(entry.getKey().getName() + " (" + entry.getValue() + ")");
+            }
+
+            content += " Failed: " + reasons;
+        }
+
+        Notifications.Bus.notify(new Notification(NOTIFICATION_GROUP, "DB model generation finished", content,
+                failed.isEmpty() ? NotificationType.INFORMATION : NotificationType.WARNING), project);
+        metrics.report(project, artifacts.size() + " artifacts for " + processed.size() + " classes");
+    }
+
+    private void applyBatch(Project project, final List<ModelJob> batch, final Map<PsiClass, String> failed,
+                            final Map<PsiFile, Long> written) {
+        Set<PsiFile> files = new LinkedHashSet<PsiFile>();
+        for (ModelJob job : batch) {
+            files.addAll(Arrays.asList(job.files));
+        }
+
+        new WriteCommandAction.Simple(project, "Generate DB models", files.toArray(new PsiFile[files.size()])) {
+            @Override
+            protected void run() throws Throwable {
+                for (ModelJob job : batch) {
+                    if (!job.psiClass.isValid()) {
+                        failed.put(job.psiClass, "removed during generation");
+                        continue;
+                    }
+
+                    // Prepared members would overwrite edits made since the class was analyzed.
+                    final PsiFile file = job.psiClass.getContainingFile();
+                    final long expected = written.containsKey(file) ? written.get(file) : job.stamp;
+                    if (file.getModificationStamp() != expected) {
+                        failed.put(job.psiClass, "modified during generation, run again");
+                        continue;
+                    }
+
+                    try {
+                        job.generator.generateAll(job.artifacts);
+                    } catch (RuntimeException ex) {
+                        failed.put(job.psiClass, String.valueOf(ex.getMessage()));
+                    }
+
+                    for (PsiFile jobFile : job.files) {
+                        written.put(jobFile, jobFile.getModificationStamp());
+                    }
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * Collects model classes, i.e., classes declaring the TABLE or FIELD_* constants. Other classes in the scope
+     * are left untouched.
+     */
+    private static void collectClasses(PsiDirectory directory, List<PsiClass> result) {
+        for (PsiFile file : directory.getFiles()) {
+            if (!(file instanceof PsiJavaFile)) {
+                continue;
+            }
+
+            for (PsiClass psiClass : ((PsiJavaFile) file).getClasses()) {
+                if (!psiClass.isInterface() && !psiClass.isEnum() && !psiClass.isAnnotationType() && isModelClass(psiClass)) {
+                    result.add(psiClass);
+                }
+            }
+        }
+
+        for (PsiDirectory subdirectory : directory.getSubdirectories()) {
+            collectClasses(subdirectory, result);
+        }
+    }
+
+    private static boolean isModelClass(PsiClass psiClass) {
+        for (PsiField field : psiClass.getFields()) {
+            if (field.hasModifierProperty(PsiModifier.STATIC)
+                    && ("TABLE".equals(field.getName()) || field.getName().startsWith("FIELD_"))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static List<PsiDirectory> getRootDirectories(AnActionEvent e) {
+        List<PsiDirectory> roots = new ArrayList<PsiDirectory>();
+        final Project project = e.getProject();
+        if (project == null) {
+            return roots;
+        }
+
+        PsiElement element = e.getData(LangDataKeys.PSI_ELEMENT);
+        if (element instanceof PsiDirectory) {
+            roots.add((PsiDirectory) element);
+        } else if (element instanceof PsiPackage) {
+            for (PsiDirectory directory : ((PsiPackage) element).getDirectories()) {
+                roots.add(directory);
+            }
+        } else {
+            Module module = e.getData(LangDataKeys.MODULE_CONTEXT);
+            if (module != null) {
+                for (VirtualFile sourceRoot : ModuleRootManager.getInstance(module).getSourceRoots(false)) {
+                    PsiDirectory directory = PsiManager.getInstance(project).findDirectory(sourceRoot);
+                    if (directory != null) {
+                        roots.add(directory);
+                    }
+                }
+            }
+        }
+
+        return roots;
+    }
+
+    @Override
+    public void update(AnActionEvent e) {
+        e.getPresentation().setEnabled(!getRootDirectories(e).isEmpty());
+    }
+
+    private static class ModelJob {
+        private final PsiClass psiClass;
+        private final CodeGenerator generator;
+        private final EnumSet<Artifact> artifacts;
+        private final PsiFile[] files;
+        private final long stamp;
+
+        private ModelJob(PsiClass psiClass, CodeGenerator generator, EnumSet<Artifact> artifacts, PsiFile[] files, long stamp) {
+            this.psiClass = psiClass;
+            this.generator = generator;
+            this.artifacts = artifacts;
+            this.files = files;
+            this.stamp = stamp;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2015 Dusan Klinec Ph4r05.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.phonex.intellij.android.dbmodel;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.DialogWrapper;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+
+/**
+ * Selection of artifacts to generate.
+ */
+public class BatchGenerateDialog extends DialogWrapper {
+
+    private final JPanel myComponent;
+    private final Map<Artifact, JCheckBox> myBoxes = new EnumMap<Artifact, JCheckBox>(Artifact.class);
+
+    protected BatchGenerateDialog(Project project, String title) {
+        super(project);
+        setTitle(title);
+
+        myComponent = new JPanel();
+        myComponent.setLayout(new BoxLayout(myComponent, BoxLayout.Y_AXIS));
+        for (Artifact artifact : Artifact.values()) {
+            JCheckBox box = new JCheckBox(artifact.getText());
+            myBoxes.put(artifact, box);
+            myComponent.add(box);
+        }
+
+        init();
+    }
+
+    @Nullable
+    @Override
+    protected JComponent createCenterPanel() {
+        return myComponent;
+    }
+
+    public EnumSet<Artifact> getSelectedArtifacts() {
+        EnumSet<Artifact> artifacts = EnumSet.noneOf(Artifact.class);
+        for (Map.Entry<Artifact, JCheckBox> entry : myBoxes.entrySet()) {
+            if (entry.getValue().isSelected()) {
+                artifacts.add(entry.getKey());
+            }
+        }
+
+        return artifacts;
+    }
+}
@@ -16,16 +16,33 @@
  */
 package net.phonex.intellij.android.dbmodel;
 
-import com.google.common.base.CaseFormat;
 import com.intellij.psi.*;
 import com.intellij.psi.codeStyle.JavaCodeStyleManager;
+import com.intellij.psi.util.PsiTypesUtil;
+import net.phonex.intellij.android.dbmodel.spec.FieldSpec;
+import net.phonex.intellij.android.dbmodel.spec.ForeignKeySpec;
+import net.phonex.intellij.android.dbmodel.spec.ModelSpec;
+import net.phonex.intellij.android.dbmodel.spec.ModelTextGenerator;
+import net.phonex.intellij.android.dbmodel.spec.TableSchema;
 import net.phonex.intellij.android.dbmodel.typeserializers.*;
+import net.phonex.intellij.android.dbmodel.typeserializers.serializers.FieldwiseSerializer;
+import net.phonex.intellij.android.dbmodel.typeserializers.serializers.NullBitmaskPrimitiveSerializer;
+import net.phonex.intellij.android.dbmodel.typeserializers.serializers.NullablePrimitivesSerializer;
+import net.phonex.intellij.android.dbmodel.util.ClassMemberIndex;
 import net.phonex.intellij.android.dbmodel.util.FieldDef;
+import net.phonex.intellij.android.dbmodel.util.IndexDef;
 import net.phonex.intellij.android.dbmodel.util.NewFieldRecord;
 import net.phonex.intellij.android.dbmodel.util.PsiUtils;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 
 /**
@@ -33,6 +50,15 @@ import java.util.List;
  */
 public class CodeGenerator {
     public static final String CREATOR_NAME = "CREATOR";
+    public static final String COLUMN_MAP_NAME = ModelTextGenerator.COLUMN_MAP_NAME;
+    public static final String DIRTY_MASK_NAME = ModelTextGenerator.DIRTY_MASK_NAME;
+    public static final int DIRTY_MASK_BITS = 64;
+    public static final String NULL_MASK_NAME = ModelTextGenerator.NULL_MASK_NAME;
+    /**
+     * Minimal field count for which Parcel methods are assembled from {@link StatementTemplates}.
+     */
+    static final int TEMPLATE_MIN_FIELDS = 32;
+    private static final String VERIFY_COMMENT = "TODO: verify";
 
     private final String[] integerTypes = new String[] {
             "byte", "double", "float", "int", "long", "short", "boolean",
@@ -42,22 +68,81 @@ public class CodeGenerator {
     private final PsiClass mClass;
     private final List<PsiField> mFields;
     private final TypeSerializerFactory mTypeSerializerFactory;
+    private List<IndexDef> mIndexes = new ArrayList<IndexDef>();
+    private final boolean mCompactEncoding;
+    private final boolean mNullBitmask;
+    private final boolean mIncremental;
+    private final boolean mColumnOrder;
+    private final Set<String> mForeignKeys;
+    private final Set<String> mSearchableFields;
+    private final String mSortKey;
+    private boolean mReplaceExisting;
+    private List<PsiElement> mShortenedElements;
+    private GenerationMetrics mMetrics = new GenerationMetrics();
+    private StatementTemplates mTemplates;
+    private ModelTextGenerator mTextGenerator;
+    private ClassMemberIndex mMembers;
+    private final Set<PsiClass> mFieldwiseClasses = new LinkedHashSet<PsiClass>();
+    private final Map<String, PsiElement> mPrepared = new HashMap<String, PsiElement>();
 
     public CodeGenerator(PsiClass psiClass, List<PsiField> fields) {
+        this(psiClass, fields, SerializerResolver.getInstance(psiClass.getProject()).newRun());
+    }
+
+    CodeGenerator(PsiClass psiClass, List<PsiField> fields, TypeSerializerFactory typeSerializerFactory) {
         mClass = psiClass;
         mFields = fields;
+        mCompactEncoding = GeneratorOptions.COMPACT_ENCODING.isEnabled(psiClass.getProject());
+        mNullBitmask = GeneratorOptions.NULL_BITMASK.isEnabled(psiClass.getProject());
+        mIncremental = GeneratorOptions.INCREMENTAL.isEnabled(psiClass.getProject());
+        mColumnOrder = GeneratorOptions.COLUMN_ORDER.isEnabled(psiClass.getProject());
+        mForeignKeys = GeneratorOptions.getForeignKeys(psiClass.getProject(), psiClass.getQualifiedName());
+        mSearchableFields = GeneratorOptions.getSearchableFields(psiClass.getProject(), psiClass.getQualifiedName());
+        mSortKey = GeneratorOptions.getSortKey(psiClass.getProject(), psiClass.getQualifiedName());
+        this.mTypeSerializerFactory = typeSerializerFactory;
+    }
 
-        this.mTypeSerializerFactory = new ChainSerializerFactory(
-                new BundleSerializerFactory(),
-                new DateSerializerFactory(),
-                new EnumerationSerializerFactory(),
-                new ParcelableListSerializerFactory(),
-                new PrimitiveTypeSerializerFactory(),
-                new PrimitiveArraySerializerFactory(),
-                new ListSerializerFactory(),
-                new ParcelableSerializerFactory(),
-                new SerializableSerializerFactory()
-        );
+    /**
+     * Sets indexes generated to CREATE_INDEXES together with CREATE_TABLE.
+     */
+    public CodeGenerator setIndexes(List<IndexDef> indexes) {
+        mIndexes = indexes;
+        mTextGenerator = null;
+        mPrepared.clear();
+        return this;
+    }
+
+    /**
+     * Sets metrics the stages are recorded to, allows to aggregate several generator runs.
+     */
+    public CodeGenerator setMetrics(GenerationMetrics metrics) {
+        mMetrics = metrics;
+        return this;
+    }
+
+    /**
+     * Regenerated members replace the existing ones in place instead of being added after them for review,
+     * for unattended regeneration of classes generated before.
+     */
+    public CodeGenerator setReplaceExisting(boolean replaceExisting) {
+        mReplaceExisting = replaceExisting;
+        return this;
+    }
+
+    public GenerationMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    /**
+     * Generates the artifact, recording the run to metrics.
+     */
+    public void generateArtifact(Artifact artifact) {
+        final GenerationMetrics.Stage previous = mMetrics.enter(GenerationMetrics.Stage.TEXT_BUILDING);
+        try {
+            artifact.generate(this);
+        } finally {
+            mMetrics.exit(previous);
+        }
     }
 
     private String generateStaticCreator(PsiClass psiClass) {
@@ -74,37 +159,449 @@ public class CodeGenerator {
         return sb.toString();
     }
 
-    private String generateConstructor(List<PsiField> fields, PsiClass psiClass) {
-        String className = psiClass.getName();
+    /**
+     * Extracts the PSI-free model specification, must run in a read action. Cached until indexes change.
+     */
+    public ModelSpec getSpec() {
+        if (mTextGenerator == null) {
+            mTextGenerator = new ModelTextGenerator(createSpec());
+        }
 
-        StringBuilder sb = new StringBuilder("private ");
+        return mTextGenerator.getSpec();
+    }
 
-        // Create the Parcelable-required constructor
-        sb.append(className).append("(android.os.Parcel in) {");
+    /**
+     * Prepares generation of the artifacts off the event dispatch thread: extracts the spec, resolving serializers,
+     * builds the text of generated members and parses it. Must run in a read action, PSI of the class must not change
+     * until the artifacts are generated, which then only looks up the prepared members and inserts them.
+     */
+    public CodeGenerator prepare(Set<Artifact> artifacts) {
+        final ModelTextGenerator textGenerator = getTextGenerator();
+        for (Artifact artifact : artifacts) {
+            switch (artifact) {
+                case FULL_PROJECTION:
+                    prepareField(textGenerator.generateFullProjection());
+                    break;
+                case CREATE_TABLE:
+                    prepareField(textGenerator.generateCreateTable());
+                    if (!getSpec().getIndexes().isEmpty()) {
+                        prepareField(textGenerator.generateCreateIndexes());
+                    }
+                    break;
+                case FULL_TEXT_SEARCH:
+                    if (textGenerator.hasSearchableFields()) {
+                        prepareField(textGenerator.generateFtsTable());
+                        prepareField(textGenerator.generateCreateFts());
+                        prepareMethod(textGenerator.generateSearch());
+                        prepareMethod(textGenerator.generateSearchRank());
+                    }
+                    break;
+                case PAGINATION:
+                    if (textGenerator.hasKeysetPagination()) {
+                        prepareField(textGenerator.generateCreatePageIndex());
+                        prepareField(textGenerator.generatePageFirstSql());
+                        prepareField(textGenerator.generatePageNextSql());
+                        prepareMethod(textGenerator.generateFirstPage());
+                        prepareMethod(textGenerator.generateNextPage());
+                    }
+                    break;
+                case CREATE_FROM_CURSOR:
+                    prepareForeignKeyReferences();
+                    prepareMethod(textGenerator.generateCreateFromCursor());
+                    break;
+                case CREATE_FROM_CURSOR_FULL_PROJECTION:
+                    prepareForeignKeyReferences();
+                    prepareMethod(textGenerator.generateCreateFromCursorFullProjection());
+                    break;
+                case CREATE_FROM_CURSOR_COLUMN_MAP:
+                    prepareForeignKeyReferences();
+                    prepareClass(textGenerator.generateColumnMap());
+                    prepareMethod(textGenerator.generateCreateFromCursorColumnMap());
+                    if (textGenerator.hasForeignKeys()) {
+                        prepareField(textGenerator.generateJoinTables());
+                        prepareField(textGenerator.generateJoinProjection());
+                        prepareClass(textGenerator.generateJoinedColumnMap());
+                        prepareMethod(textGenerator.generateCreateFromJoinedCursor());
+                    }
+                    break;
+                case DB_CONTENT_VALUES:
+                    prepareMethod(textGenerator.generateGetDbContentValues());
+                    break;
+                case INSERT_STATEMENT:
+                    prepareField(textGenerator.generateInsertSql());
+                    prepareMethod(textGenerator.generateBindTo());
+                    prepareMethod(textGenerator.generateInsertAll());
+                    break;
+                case DIRTY_TRACKING:
+                    prepareMethod(textGenerator.generateGetDirtyContentValues());
+                    prepareMethod(textGenerator.generateGetDirtyUpdateSql());
+                    prepareMethod(textGenerator.generateBindDirtyUpdate());
+                    break;
+                case PARCELABLE:
+                    // Wide classes are assembled from statement templates instead.
+                    if (mFields.size() < TEMPLATE_MIN_FIELDS) {
+                        prepareMethod(ModelTextGenerator.WRITE_TO_PARCEL_HEADER + textGenerator.generateWriteFields() + "}");
+                        prepareMethod(textGenerator.getConstructorHeader() + textGenerator.generateReadFields() + "}");
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
 
-        // Creates all of the deserialization methods for the given fields
-        for (PsiField field : fields) {
-            sb.append(getSerializerForType(field).readValue(field, "in"));
+        return this;
+    }
+
+    private void prepareForeignKeyReferences() {
+        for (FieldSpec fieldSpec : getSpec().getColumns()) {
+            if (fieldSpec.getForeignKey() != null){
+                prepareMethod(getTextGenerator().generateForeignKeyReference(fieldSpec));
+            }
         }
+    }
 
-        sb.append("}");
-        return sb.toString();
+    private void prepareField(String text) {
+        mPrepared.put(text, createField(text));
     }
 
-    private String generateWriteToParcel(List<PsiField> fields) {
-        StringBuilder sb = new StringBuilder("@Override public void writeToParcel(android.os.Parcel dest, int flags) {");
+    private void prepareMethod(String text) {
+        mPrepared.put(text, createMethod(text));
+    }
 
-        for (PsiField field : fields) {
-            sb.append(getSerializerForType(field).writeValue(field, "dest", "flags"));
+    private void prepareClass(String text) {
+        mPrepared.put(text, createClass(text));
+    }
+
+    /**
+     * Members of the generated class, indexed on first use and kept up to date by the insertion helpers.
+     */
+    private ClassMemberIndex getMembers() {
+        if (mMembers == null) {
+            mMembers = new ClassMemberIndex(mClass);
         }
 
-        sb.append("}");
+        return mMembers;
+    }
 
-        return sb.toString();
+    private ModelTextGenerator getTextGenerator() {
+        getSpec();
+        return mTextGenerator;
+    }
+
+    private ModelSpec createSpec() {
+        final GenerationMetrics.Stage previous = mMetrics.enter(GenerationMetrics.Stage.FIELD_ANALYSIS);
+        try {
+            final Map<PsiField, NullBitmaskPrimitiveSerializer> nullMaskSerializers = getNullBitmaskSerializers(mFields);
+            final Map<PsiField, FieldSpec> fieldSpecs = new LinkedHashMap<PsiField, FieldSpec>();
+            for (PsiField field : mFields) {
+                fieldSpecs.put(field, createFieldSpec(field, nullMaskSerializers.get(field)));
+            }
+
+            final List<ModelSpec.IndexSpec> indexSpecs = new ArrayList<ModelSpec.IndexSpec>();
+            for (IndexDef index : mIndexes) {
+                final List<FieldSpec> indexFields = new ArrayList<FieldSpec>();
+                for (PsiField field : index.fields) {
+                    final FieldSpec fieldSpec = fieldSpecs.get(field);
+                    indexFields.add(fieldSpec != null ? fieldSpec : createFieldSpec(field, null));
+                }
+
+                indexSpecs.add(new ModelSpec.IndexSpec(indexFields, index.unique));
+            }
+
+            // Foreign key columns are indexed unless the user did so.
+            for (FieldSpec fieldSpec : fieldSpecs.values()) {
+                if (fieldSpec.getForeignKey() != null && !isIndexed(fieldSpec, indexSpecs)) {
+                    indexSpecs.add(new ModelSpec.IndexSpec(Collections.singletonList(fieldSpec), false));
+                }
+            }
+
+            // Keyset pagination needs the (sort key, id) index, created with the other indexes.
+            FieldSpec sortKey = null;
+            FieldSpec primaryKey = null;
+            for (FieldSpec fieldSpec : fieldSpecs.values()) {
+                if (fieldSpec.isSortKey()) {
+                    sortKey = fieldSpec;
+                } else if (fieldSpec.isPrimaryKey()) {
+                    primaryKey = fieldSpec;
+                }
+            }
+
+            if (sortKey != null && primaryKey != null) {
+                indexSpecs.add(ModelTextGenerator.getPageIndex(sortKey, primaryKey));
+            }
+
+            final List<FieldSpec> fields = new ArrayList<FieldSpec>(fieldSpecs.values());
+            final List<FieldSpec> columns = mColumnOrder
+                    ? ModelSpec.orderByStorageClass(fields, GeneratorOptions.getPinnedColumns(mClass.getProject(), mClass.getQualifiedName()))
+                    : fields;
+            return new ModelSpec(mClass.getName(), mClass.getQualifiedName(), fields, columns, indexSpecs);
+        } finally {
+            mMetrics.exit(previous);
+        }
+    }
+
+    private FieldSpec createFieldSpec(PsiField field, NullBitmaskPrimitiveSerializer nullMaskSerializer) {
+        final TypeSerializer serializer = nullMaskSerializer != null ? nullMaskSerializer : getSerializerForType(field);
+        final FieldSpec.Builder builder = FieldSpec.builder(field.getName(), field.getType().getCanonicalText())
+                .primitive(isPrimitiveType(field.getType()))
+                .sqlType(getSqlType(field))
+                .serializer(serializer.getClass().getSimpleName(), serializer.writeValue(field, "dest", "flags"), serializer.readValue(field, "in"));
+
+        if (nullMaskSerializer != null) {
+            builder.nullMaskWrite(nullMaskSerializer.writeMask(field));
+        }
+
+        final PsiClass enumClass = mCompactEncoding ? getEnumClass(field) : null;
+        if (enumClass != null) {
+            builder.enumCode(enumClass.getQualifiedName(), enumClass.getName());
+        }
+
+        // Only primitive sort keys, NULL sorts first and cannot be bound as a page boundary.
+        builder.sortKey(field.getName().equals(mSortKey) && isPrimitiveType(field.getType()));
+        builder.searchable(mSearchableFields.contains(field.getName()) && "java.lang.String".equals(field.getType().getCanonicalText()));
+
+        final ForeignKeySpec foreignKey = mForeignKeys.contains(field.getName()) ? createForeignKeySpec(field) : null;
+        if (foreignKey != null) {
+            builder.sqlType(foreignKey.getSqlType()).foreignKey(foreignKey);
+        }
+
+        return builder.build();
+    }
+
+    private static boolean isIndexed(FieldSpec fieldSpec, List<ModelSpec.IndexSpec> indexSpecs) {
+        for (ModelSpec.IndexSpec indexSpec : indexSpecs) {
+            if (indexSpec.getFields().size() == 1 && indexSpec.getFields().get(0).getName().equals(fieldSpec.getName())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Describes the model referenced by the field, from its TABLE, FIELD_ID and FIELD_* constants and the id field.
+     * Missing constants default to the values generated by {@link #generateFields()}.
+     *
+     * @return null if the field type is not a class
+     */
+    private ForeignKeySpec createForeignKeySpec(PsiField field) {
+        final PsiClass model = PsiTypesUtil.getPsiClass(field.getType());
+        if (model == null || model.getQualifiedName() == null || model.isEnum() || model.isInterface()) {
+            return null;
+        }
+
+        final List<String> columnConstants = new ArrayList<String>();
+        for (PsiField modelField : model.getAllFields()) {
+            if (modelField.hasModifierProperty(PsiModifier.STATIC) && modelField.getName().startsWith("FIELD_")) {
+                columnConstants.add(modelField.getName());
+            }
+        }
+
+        if (!hasAccessibleId(model, mClass)) {
+            throw new IllegalStateException("Foreign key " + field.getName() + ": " + model.getName()
+                    + " has no id field accessible from " + mClass.getName() + " nor getId() and setId()");
+        }
+
+        String idGetter = null;
+        String idSetter = null;
+        final PsiField idField = model.findFieldByName("id", true);
+        if (!isAccessible(idField, mClass)) {
+            idGetter = "getId";
+            idSetter = "setId";
+        }
+
+        return new ForeignKeySpec(model.getQualifiedName(), getStringConstant(model, "TABLE", model.getName()),
+                getStringConstant(model, "FIELD_ID", "id"), "id", idGetter, idSetter, columnConstants);
+    }
+
+    /**
+     * True if the referencing class can read and write the id of the model, directly or by getId() and setId().
+     * Foreign keys to other models cannot be generated.
+     */
+    public static boolean hasAccessibleId(PsiClass model, PsiClass context) {
+        final PsiField idField = model.findFieldByName("id", true);
+        if (idField == null) {
+            return false;
+        }
+
+        return isAccessible(idField, context) || (PsiUtils.findMethod(model, "getId") != null
+                && PsiUtils.findMethod(model, "setId", idField.getType().getCanonicalText()) != null);
+    }
+
+    private static boolean isAccessible(PsiField field, PsiClass context) {
+        return field != null && JavaPsiFacade.getInstance(context.getProject()).getResolveHelper().isAccessible(field, context, null);
+    }
+
+    private static String getStringConstant(PsiClass psiClass, String name, String defaultValue) {
+        final PsiField field = psiClass.findFieldByName(name, true);
+        if (field == null || field.getInitializer() == null) {
+            return defaultValue;
+        }
+
+        final Object value = JavaPsiFacade.getInstance(psiClass.getProject()).getConstantEvaluationHelper()
+                .computeConstantExpression(field.getInitializer());
+        return value instanceof String ? (String) value : defaultValue;
+    }
+
+    private TypeSerializer getParcelSerializer(PsiField field, Map<PsiField, NullBitmaskPrimitiveSerializer> nullMaskSerializers) {
+        return nullMaskSerializers.containsKey(field) ? nullMaskSerializers.get(field) : getSerializerForType(field);
+    }
+
+    /**
+     * Creates a method writing or reading the fields to or from the parcel. Wide classes get per-field statements
+     * cloned from {@link StatementTemplates} instead of parsing the whole method text.
+     *
+     * @param header method text up to the opening brace of the body
+     * @param write true for writing to "dest", false for reading from "in"
+     */
+    private PsiMethod createParcelMethod(String header, boolean write) {
+        final ModelTextGenerator textGenerator = getTextGenerator();
+        if (mFields.size() < TEMPLATE_MIN_FIELDS) {
+            return createMethod(header + (write ? textGenerator.generateWriteFields() : textGenerator.generateReadFields()) + "}");
+        }
+
+        if (mTemplates == null) {
+            mTemplates = new StatementTemplates(mClass, mMetrics);
+        }
+
+        final Map<PsiField, NullBitmaskPrimitiveSerializer> nullMaskSerializers = getNullBitmaskSerializers(mFields);
+        final List<FieldSpec> fieldSpecs = textGenerator.getSpec().getFields();
+        final PsiMethod method = createMethod(header + (write ? textGenerator.generateWriteMask() : textGenerator.generateReadMask()) + "}");
+        final PsiCodeBlock body = method.getBody();
+        for (int i = 0; i < mFields.size(); i++) {
+            final PsiField field = mFields.get(i);
+            final FieldSpec fieldSpec = fieldSpecs.get(i);
+            final TypeSerializer serializer = getParcelSerializer(field, nullMaskSerializers);
+            final PsiField placeholder = mTemplates.getPlaceholder(field.getType());
+            final PsiStatement[] statements = write
+                    ? mTemplates.instantiate(serializer.writeValue(placeholder, "dest", "flags"), field.getName(), fieldSpec.getParcelWrite())
+                    : mTemplates.instantiate(serializer.readValue(placeholder, "in"), field.getName(), fieldSpec.getParcelRead());
+
+            for (PsiStatement statement : statements) {
+                body.addBefore(statement, body.getRBrace());
+            }
+        }
+
+        return method;
     }
 
     private TypeSerializer getSerializerForType(PsiField field) {
-        return mTypeSerializerFactory.getSerializer(field.getType());
+        final GenerationMetrics.Stage previous = mMetrics.enter(GenerationMetrics.Stage.SERIALIZER_RESOLUTION);
+        try {
+            TypeSerializer serializer = mTypeSerializerFactory.getSerializer(field.getType());
+            if (serializer instanceof FieldwiseSerializer) {
+                mFieldwiseClasses.add(PsiTypesUtil.getPsiClass(field.getType()));
+            }
+
+            return serializer;
+        } finally {
+            mMetrics.exit(previous);
+        }
+    }
+
+    /**
+     * Files modified by the generation: the file of the class and files of classes getting field-wise codec.
+     * Write command must be given all of them. Must run in a read action.
+     */
+    public static PsiFile[] getAffectedFiles(PsiClass psiClass, List<PsiField> fields) {
+        return getAffectedFiles(psiClass, fields, SerializerResolver.getInstance(psiClass.getProject()));
+    }
+
+    static PsiFile[] getAffectedFiles(PsiClass psiClass, List<PsiField> fields, TypeSerializerFactory typeSerializerFactory) {
+        final Set<PsiFile> files = new LinkedHashSet<PsiFile>();
+        files.add(psiClass.getContainingFile());
+        collectFieldwiseFiles(typeSerializerFactory, fields, new HashSet<PsiClass>(), files);
+        return files.toArray(new PsiFile[files.size()]);
+    }
+
+    private static void collectFieldwiseFiles(TypeSerializerFactory factory, List<PsiField> fields, Set<PsiClass> visited, Set<PsiFile> files) {
+        for (PsiField field : fields) {
+            if (!(factory.getSerializer(field.getType()) instanceof FieldwiseSerializer)) {
+                continue;
+            }
+
+            final PsiClass codecClass = PsiTypesUtil.getPsiClass(field.getType());
+            if (codecClass != null && visited.add(codecClass)) {
+                files.add(codecClass.getContainingFile());
+                collectFieldwiseFiles(factory, PsiUtils.getSerializableFields(codecClass), visited, files);
+            }
+        }
+    }
+
+    /**
+     * Generates field-wise codec methods into the classes collected during Parcelable generation,
+     * recursively for the classes they reference. Each class is visited once.
+     *
+     * @param visited classes already processed
+     */
+    private void generateFieldwiseCodecs(Set<PsiClass> visited) {
+        visited.add(mClass);
+
+        for (PsiClass codecClass : new ArrayList<PsiClass>(mFieldwiseClasses)) {
+            if (visited.contains(codecClass)) {
+                continue;
+            }
+
+            new CodeGenerator(codecClass, PsiUtils.getSerializableFields(codecClass), mTypeSerializerFactory)
+                    .setMetrics(mMetrics)
+                    .generateFieldwiseCodec(visited);
+        }
+    }
+
+    /**
+     * Generates writeFieldsToParcel() and readFieldsFromParcel() methods used by {@link FieldwiseSerializer}
+     * in place of Java serialization.
+     *
+     * @param visited classes already processed
+     */
+    private void generateFieldwiseCodec(Set<PsiClass> visited) {
+        final PsiMethod write = createParcelMethod("public void " + FieldwiseSerializer.WRITE_METHOD + "(android.os.Parcel dest, int flags) {", true);
+        final PsiMethod read = createParcelMethod("public void " + FieldwiseSerializer.READ_METHOD + "(android.os.Parcel in) {", false);
+
+        final PsiMethod prevWrite = getMembers().findMethod(FieldwiseSerializer.WRITE_METHOD, "android.os.Parcel", "int");
+        final PsiMethod prevRead = getMembers().findMethod(FieldwiseSerializer.READ_METHOD, "android.os.Parcel");
+        if (mIncremental) {
+            syncMember(prevWrite, write);
+            syncMember(prevRead, read);
+        } else {
+            replaceOrAddLast(prevWrite, write);
+            replaceOrAddLast(prevRead, read);
+        }
+
+        generateFieldwiseCodecs(visited);
+    }
+
+    /**
+     * In null bitmask mode returns serializers for boxed primitive fields sharing one null mask,
+     * in field order. At most 64 fields are covered, the rest keeps the default serializer.
+     */
+    private Map<PsiField, NullBitmaskPrimitiveSerializer> getNullBitmaskSerializers(List<PsiField> fields) {
+        final GenerationMetrics.Stage previous = mMetrics.enter(GenerationMetrics.Stage.FIELD_ANALYSIS);
+        try {
+            final Map<PsiField, NullBitmaskPrimitiveSerializer> serializers = new LinkedHashMap<PsiField, NullBitmaskPrimitiveSerializer>();
+            if (!mNullBitmask) {
+                return serializers;
+            }
+
+            List<PsiField> nullableFields = new ArrayList<PsiField>();
+            for (PsiField field : fields) {
+                if (nullableFields.size() < 64
+                        && getSerializerForType(field) instanceof NullablePrimitivesSerializer
+                        && NullBitmaskPrimitiveSerializer.isSupported(field.getType().getCanonicalText())) {
+                    nullableFields.add(field);
+                }
+            }
+
+            final boolean wideMask = nullableFields.size() > 32;
+            int bit = 0;
+            for (PsiField field : nullableFields) {
+                serializers.put(field, new NullBitmaskPrimitiveSerializer(field.getType().getCanonicalText(), NULL_MASK_NAME, bit++, wideMask));
+            }
+
+            return serializers;
+        } finally {
+            mMetrics.exit(previous);
+        }
     }
 
     private String generateDescribeContents() {
@@ -112,64 +609,174 @@ public class CodeGenerator {
     }
 
     public void generate() {
-        PsiElementFactory elementFactory = JavaPsiFacade.getElementFactory(mClass.getProject());
+        if (mIncremental) {
+            generateIncremental();
+            return;
+        }
 
         removeExistingParcelableImplementation(mClass);
 
         // Describe contents method
-        PsiMethod describeContentsMethod = elementFactory.createMethodFromText(generateDescribeContents(), mClass);
+        PsiMethod describeContentsMethod = createMethod(generateDescribeContents());
         // Method for writing to the parcel
-        PsiMethod writeToParcelMethod = elementFactory.createMethodFromText(generateWriteToParcel(mFields), mClass);
+        PsiMethod writeToParcelMethod = createParcelMethod(ModelTextGenerator.WRITE_TO_PARCEL_HEADER, true);
 
         // Default constructor if needed
         String defaultConstructorString = generateDefaultConstructor(mClass);
         PsiMethod defaultConstructor = null;
 
         if (defaultConstructorString != null) {
-            defaultConstructor = elementFactory.createMethodFromText(defaultConstructorString, mClass);
+            defaultConstructor = createMethod(defaultConstructorString);
         }
 
         // Constructor
-        PsiMethod constructor = elementFactory.createMethodFromText(generateConstructor(mFields, mClass), mClass);
+        PsiMethod constructor = createParcelMethod(getTextGenerator().getConstructorHeader(), false);
         // CREATOR
-        PsiField creatorField = elementFactory.createFieldFromText(generateStaticCreator(mClass), mClass);
+        PsiField creatorField = createField(generateStaticCreator(mClass));
 
-        JavaCodeStyleManager styleManager = JavaCodeStyleManager.getInstance(mClass.getProject());
 
         // Shorten all class references
-        styleManager.shortenClassReferences(addAsLast(describeContentsMethod));
-        styleManager.shortenClassReferences(addAsLast(writeToParcelMethod));
+        shorten(addAsLast(describeContentsMethod));
+        shorten(addAsLast(writeToParcelMethod));
 
         // Only adds if available
         if (defaultConstructor != null) {
-            styleManager.shortenClassReferences(addAsLast(defaultConstructor));
+            shorten(addAsLast(defaultConstructor));
         }
 
-        styleManager.shortenClassReferences(addAsLast(constructor));
-        styleManager.shortenClassReferences(addAsLast(creatorField));
+        shorten(addAsLast(constructor));
+        shorten(addAsLast(creatorField));
+
+        makeClassImplementParcelable();
 
-        makeClassImplementParcelable(elementFactory);
+        generateFieldwiseCodecs(new HashSet<PsiClass>());
     }
 
-    public void generateFields() {
-        PsiElementFactory elementFactory = JavaPsiFacade.getElementFactory(mClass.getProject());
-        JavaCodeStyleManager styleManager = JavaCodeStyleManager.getInstance(mClass.getProject());
+    /**
+     * Generates all given artifacts in one pass. Members are inserted first, class references of the generated
+     * members are then shortened in one final step. Intended to run in a single write command.
+     */
+    public void generateAll(Set<Artifact> artifacts) {
+        mShortenedElements = new ArrayList<PsiElement>();
+        try {
+            for (Artifact artifact : artifacts) {
+                generateArtifact(artifact);
+            }
+        } finally {
+            final List<PsiElement> elements = mShortenedElements;
+            mShortenedElements = null;
+            shortenRange(elements);
+        }
+    }
 
+    private void shortenRange(List<PsiElement> elements) {
+        final GenerationMetrics.Stage previous = mMetrics.enter(GenerationMetrics.Stage.SHORTEN_REFERENCES);
+        try {
+            final JavaCodeStyleManager styleManager = JavaCodeStyleManager.getInstance(mClass.getProject());
+            for (PsiElement element : elements) {
+                // Elements replaced later in the run are no longer valid, their replacements are recorded too.
+                if (!element.isValid()){
+                    continue;
+                }
+
+                styleManager.shortenClassReferences(element);
+            }
+        } finally {
+            mMetrics.exit(previous);
+        }
+    }
+
+    /**
+     * Incremental variant of {@link #generate()}. Existing Parcelable members are compared with the generated ones
+     * structurally, only differing members, or differing statements of methods with unchanged signature, are replaced.
+     * If the class is already up to date, PSI is not touched at all.
+     */
+    private void generateIncremental() {
+        String defaultConstructorString = generateDefaultConstructor(mClass);
+        if (defaultConstructorString != null) {
+            shorten(addAsLast(createMethod(defaultConstructorString)));
+        }
+
+        syncMember(getMembers().findMethod("describeContents"),
+                createMethod(generateDescribeContents()));
+        syncMember(getMembers().findMethod("writeToParcel", "android.os.Parcel", "int"),
+                createParcelMethod(ModelTextGenerator.WRITE_TO_PARCEL_HEADER, true));
+        syncMember(getMembers().findMethod(mClass.getName(), "android.os.Parcel"),
+                createParcelMethod(getTextGenerator().getConstructorHeader(), false));
+        syncMember(getMembers().findOwnField(CREATOR_NAME),
+                createField(generateStaticCreator(mClass)));
+
+        makeClassImplementParcelable();
+
+        generateFieldwiseCodecs(new HashSet<PsiClass>());
+    }
+
+    /**
+     * Replaces the existing member with the generated one only if they differ structurally. Methods with the same
+     * signature get only the differing statements replaced. Missing member is added as last.
+     */
+    private void syncMember(PsiMember existing, PsiMember generated) {
+        if (existing == null) {
+            shorten(addAsLast(generated));
+            return;
+        }
+
+        if (PsiUtils.getNormalizedText(existing).equals(PsiUtils.getNormalizedText(generated))) {
+            return;
+        }
+
+        if (existing instanceof PsiMethod && generated instanceof PsiMethod) {
+            final PsiMethod existingMethod = (PsiMethod) existing;
+            final PsiMethod generatedMethod = (PsiMethod) generated;
+            final PsiCodeBlock existingBody = existingMethod.getBody();
+            final PsiCodeBlock generatedBody = generatedMethod.getBody();
+
+            if (existingBody != null && generatedBody != null
+                    && PsiUtils.getNormalizedText(existingMethod.getModifierList()).equals(PsiUtils.getNormalizedText(generatedMethod.getModifierList()))
+                    && PsiUtils.getNormalizedText(existingMethod.getParameterList()).equals(PsiUtils.getNormalizedText(generatedMethod.getParameterList()))) {
+                syncCodeBlock(existingBody, generatedBody);
+                return;
+            }
+        }
+
+        shorten(replace(existing, generated));
+    }
+
+    private void syncCodeBlock(PsiCodeBlock existing, PsiCodeBlock generated) {
+        final PsiStatement[] existingStatements = existing.getStatements();
+        final PsiStatement[] generatedStatements = generated.getStatements();
+        final int common = Math.min(existingStatements.length, generatedStatements.length);
+
+        for (int i = 0; i < common; i++) {
+            if (!PsiUtils.getNormalizedText(existingStatements[i]).equals(PsiUtils.getNormalizedText(generatedStatements[i]))) {
+                shorten(replace(existingStatements[i], generatedStatements[i]));
+            }
+        }
+
+        for (int i = common; i < generatedStatements.length; i++) {
+            shorten(addBefore(existing, generatedStatements[i], existing.getRBrace()));
+        }
+
+        for (int i = common; i < existingStatements.length; i++) {
+            existingStatements[i].delete();
+        }
+    }
+
+    public void generateFields() {
         List<NewFieldRecord> newFields = new ArrayList<NewFieldRecord>();
-        newFields.add(new NewFieldRecord("TABLE", mClass.getName(), "TODO: verify"));
-        for (PsiField field : mFields) {
-            String fieldName = getFieldName(field.getName());
-            newFields.add(new NewFieldRecord(fieldName, field.getName()));
+        newFields.add(new NewFieldRecord("TABLE", mClass.getName(), VERIFY_COMMENT));
+        for (FieldSpec field : getSpec().getFields()) {
+            newFields.add(new NewFieldRecord(field.getColumnConstant(), field.getName()));
         }
 
         PsiElement prevField = null;
         for (NewFieldRecord newField : newFields) {
             // Find if field is already present in file.
-            FieldDef prevFieldImpl = PsiUtils.findField(mClass, newField.name);
+            FieldDef prevFieldImpl = getMembers().findField(newField.name);
             if (prevFieldImpl == null){
-                PsiField curField  = elementFactory.createFieldFromText(newField.decl, mClass);
-                PsiElement element = prevField == null ? addAsLast(curField) : mClass.addAfter(curField, prevField);
-                prevField = styleManager.shortenClassReferences(element);
+                PsiField curField  = createField(newField.decl);
+                PsiElement element = prevField == null ? addAsLast(curField) : addAfter(curField, prevField);
+                prevField = shorten(element);
                 continue;
             } else {
                 prevField = prevFieldImpl.field;
@@ -181,169 +788,510 @@ public class CodeGenerator {
                 continue;
             }
 
-            // Present and value differs, add anyway, but under previous field.
-            newField.addComment("TODO: verify");
-            PsiField curField  = elementFactory.createFieldFromText(newField.decl, mClass);
-            PsiElement element = prevField == null ? addAsLast(curField) : mClass.addAfter(curField, prevField);
-            prevField = styleManager.shortenClassReferences(element);
+            // Present and value differs, add anyway, but under previous field. When replacing, the existing value
+            // stays, table and column names may be chosen by hand and renaming them would break existing databases.
+            if (mReplaceExisting){
+                continue;
+            }
+
+            newField.addComment(VERIFY_COMMENT);
+            PsiField curField  = createField(newField.decl);
+            PsiElement element = prevField == null ? addAsLast(curField) : addAfter(curField, prevField);
+            prevField = shorten(element);
         }
     }
 
     public void generateFullProjection() {
-        PsiElementFactory elementFactory = JavaPsiFacade.getElementFactory(mClass.getProject());
-        JavaCodeStyleManager styleManager = JavaCodeStyleManager.getInstance(mClass.getProject());
-        StringBuilder sb = new StringBuilder("public static final String[] FULL_PROJECTION = new String[] {\n");
-        final int nmFields = mFields.size();
-        int cnFields = 0;
+        FieldDef prevField = getMembers().findField("FULL_PROJECTION");
+        PsiField projectionField = createField(getTextGenerator().generateFullProjection());
+        shorten(addAfterOrReplace(prevField == null ? null : prevField.field, projectionField));
+    }
 
-        for (PsiField field : mFields) {
-            String fieldName = getFieldName(field.getName());
-            String comma = cnFields + 1 == nmFields ? "" : ",";
+    public void generateCreateTable() {
+        FieldDef prevField = getMembers().findField("CREATE_TABLE");
+        PsiField projectionField = createField(getTextGenerator().generateCreateTable());
+        PsiElement element       = shorten(addAfterOrReplace(prevField == null ? null : prevField.field, projectionField));
 
-            sb.append(fieldName).append(comma);
-            cnFields += 1;
+        if (getSpec().getIndexes().isEmpty()){
+            return;
         }
-        sb.append("\n};\n");
 
-        FieldDef prevField = PsiUtils.findField(mClass, "FULL_PROJECTION");
-        PsiField projectionField = elementFactory.createFieldFromText(sb.toString(), mClass);
-        PsiElement element       = prevField == null ? addAsLast(projectionField) : mClass.addAfter(projectionField, prevField.field);
-        styleManager.shortenClassReferences(element);
+        // Indexes, right after CREATE_TABLE.
+        FieldDef prevIndexes = getMembers().findField("CREATE_INDEXES");
+        PsiField indexesField = createField(getTextGenerator().generateCreateIndexes());
+        element = prevIndexes == null ? addAfter(indexesField, element) : addAfterOrReplace(prevIndexes.field, indexesField);
+        shorten(element);
     }
 
-    public void generateCreateTable() {
-        PsiElementFactory elementFactory = JavaPsiFacade.getElementFactory(mClass.getProject());
-        JavaCodeStyleManager styleManager = JavaCodeStyleManager.getInstance(mClass.getProject());
-
-        final String className = mClass.getQualifiedName();
-        StringBuilder sb = new StringBuilder("public static final String CREATE_TABLE = \"CREATE TABLE IF NOT EXISTS \"\n");
-        sb.append("+ TABLE\n");
-        sb.append("+ \" (\"\n");
-
-        // Compute longest field name.
-        int maxFieldLen = 0;
-        for (PsiField field : mFields) {
-            String fieldName = getFieldName(field.getName());
-            final int fLen = fieldName.length();
-            if (fLen > maxFieldLen){
-                maxFieldLen = fLen;
-            }
-        }
-
-        // Build CREATE TABLE.
-        final int nmFields = mFields.size();
-        int cnFields = 0;
-        for (PsiField field : mFields) {
-            String fieldName = getFieldName(field.getName());
-            String comma = cnFields + 1 == nmFields ? "" : ",";
-            String sqlType = getSqlType(field);
-            cnFields += 1;
-
-            if ("FIELD_ID".equalsIgnoreCase(fieldName)){
-                sb.append("+ ").append(rightPad(fieldName, maxFieldLen+3)).append(" + \" INTEGER PRIMARY KEY AUTOINCREMENT").append(comma).append(" \"\n");
-                continue;
+    /**
+     * Generates UPGRADE_TO_V{version} statements migrating the table described by the existing CREATE_TABLE
+     * constant to the selected fields, placed after CREATE_INDEXES or CREATE_TABLE. CREATE_TABLE and CREATE_INDEXES
+     * are then regenerated in place, so fresh installs create the same schema as upgraded databases.
+     */
+    public void generateUpgrade(int version) {
+        final TableSchema previousSchema = getTableSchema(mClass);
+        if (previousSchema == null){
+            throw new IllegalStateException("CREATE_TABLE is missing or is not a constant CREATE TABLE statement");
+        }
+
+        final GenerationMetrics.Stage previous = mMetrics.enter(GenerationMetrics.Stage.TEXT_BUILDING);
+        try {
+            PsiField upgradeField = createField(getTextGenerator().generateUpgrade(version, previousSchema));
+            PsiField prevUpgrade  = getMembers().findOwnField(ModelTextGenerator.getUpgradeConstant(version));
+            if (prevUpgrade != null){
+                replaceOrAddLast(prevUpgrade, upgradeField);
+            } else {
+                PsiField anchor = getMembers().findOwnField("CREATE_INDEXES");
+                addAfterOrLast(anchor != null ? anchor : getMembers().findOwnField("CREATE_TABLE"), upgradeField);
+            }
+
+            replaceOrAddLast(getMembers().findOwnField("CREATE_TABLE"), createField(getTextGenerator().generateCreateTable()));
+            if (!getSpec().getIndexes().isEmpty()){
+                replaceOrAddAfter(getMembers().findOwnField("CREATE_INDEXES"), createField(getTextGenerator().generateCreateIndexes()),
+                        getMembers().findOwnField("CREATE_TABLE"));
             }
+        } finally {
+            mMetrics.exit(previous);
+        }
+    }
+
+    /**
+     * Parses the current value of the CREATE_TABLE constant.
+     *
+     * @return table schema, null if there is no CREATE_TABLE constant or it cannot be evaluated
+     */
+    public static TableSchema getTableSchema(PsiClass psiClass) {
+        FieldDef createTable = PsiUtils.findField(psiClass, "CREATE_TABLE");
+        if (createTable == null || createTable.field.getInitializer() == null){
+            return null;
+        }
+
+        final Object value = JavaPsiFacade.getInstance(psiClass.getProject()).getConstantEvaluationHelper()
+                .computeConstantExpression(createTable.field.getInitializer());
+        return value instanceof String ? TableSchema.parse((String) value) : null;
+    }
 
-            sb.append("+ ").append(rightPad(fieldName, maxFieldLen+3)).append(" + \" ").append(sqlType).append(comma).append(" \"\n");
+    /**
+     * Generates FTS_TABLE, CREATE_FTS statements creating the FTS4 external content table over searchable fields
+     * with its sync triggers, and search() returning rowids in rank order. Nothing is generated without
+     * searchable fields.
+     */
+    public void generateFullTextSearch() {
+        final ModelTextGenerator textGenerator = getTextGenerator();
+        if (!textGenerator.hasSearchableFields()){
+            return;
+        }
+
+        PsiField anchor = getMembers().findOwnField("CREATE_INDEXES");
+        if (anchor == null){
+            anchor = getMembers().findOwnField("CREATE_TABLE");
+        }
+
+        replaceOrAddAfter(getMembers().findOwnField(ModelTextGenerator.FTS_TABLE_NAME), createField(textGenerator.generateFtsTable()), anchor);
+        replaceOrAddAfter(getMembers().findOwnField(ModelTextGenerator.CREATE_FTS_NAME), createField(textGenerator.generateCreateFts()),
+                getMembers().findOwnField(ModelTextGenerator.FTS_TABLE_NAME));
+        replaceOrAddLast(getMembers().findMethod("search", "android.database.sqlite.SQLiteDatabase", "java.lang.String"),
+                createMethod(textGenerator.generateSearch()));
+        replaceOrAddLast(getMembers().findMethod(ModelTextGenerator.SEARCH_RANK_NAME, "byte[]"),
+                createMethod(textGenerator.generateSearchRank()));
+    }
+
+    /**
+     * Generates CREATE_PAGE_INDEX, PAGE_FIRST_SQL and PAGE_NEXT_SQL statements and firstPage(), nextPage() queries
+     * paging the table by the sort key with the id as tiebreaker. Nothing is generated without the sort key or id.
+     */
+    public void generatePagination() {
+        final ModelTextGenerator textGenerator = getTextGenerator();
+        if (!textGenerator.hasKeysetPagination()){
+            return;
         }
 
-        sb.append("+ \");\";\n");
+        final FieldSpec sortKey = textGenerator.getSpec().getSortKey();
+        final FieldSpec primaryKey = textGenerator.getSpec().getPrimaryKey();
+
+        PsiField anchor = getMembers().findOwnField("CREATE_INDEXES");
+        if (anchor == null){
+            anchor = getMembers().findOwnField("CREATE_TABLE");
+        }
 
-        FieldDef prevField = PsiUtils.findField(mClass, "CREATE_TABLE");
-        PsiField projectionField = elementFactory.createFieldFromText(sb.toString(), mClass);
-        PsiElement element       = prevField == null ? addAsLast(projectionField) : mClass.addAfter(projectionField, prevField.field);
-        styleManager.shortenClassReferences(element);
+        replaceOrAddAfter(getMembers().findOwnField(ModelTextGenerator.CREATE_PAGE_INDEX_NAME),
+                createField(textGenerator.generateCreatePageIndex()), anchor);
+        replaceOrAddAfter(getMembers().findOwnField(ModelTextGenerator.PAGE_FIRST_SQL_NAME),
+                createField(textGenerator.generatePageFirstSql()), getMembers().findOwnField(ModelTextGenerator.CREATE_PAGE_INDEX_NAME));
+        replaceOrAddAfter(getMembers().findOwnField(ModelTextGenerator.PAGE_NEXT_SQL_NAME),
+                createField(textGenerator.generatePageNextSql()), getMembers().findOwnField(ModelTextGenerator.PAGE_FIRST_SQL_NAME));
+        replaceOrAddLast(getMembers().findMethod("firstPage", "android.database.sqlite.SQLiteDatabase", "int"),
+                createMethod(textGenerator.generateFirstPage()));
+        replaceOrAddLast(getMembers().findMethod("nextPage", "android.database.sqlite.SQLiteDatabase", sortKey.getType(), primaryKey.getType(), "int"),
+                createMethod(textGenerator.generateNextPage()));
     }
 
     public void generateCreateFromCursor() {
-        PsiElementFactory elementFactory = JavaPsiFacade.getElementFactory(mClass.getProject());
-        JavaCodeStyleManager styleManager = JavaCodeStyleManager.getInstance(mClass.getProject());
+        generateEnumCodecs();
+        generateForeignKeyReferences();
 
-        StringBuilder sb = new StringBuilder("private final void createFromCursor(Cursor c){\n" +
-                "        int colCount = c.getColumnCount();\n" +
-                "        for(int i=0; i<colCount; i++){\n" +
-                "            final String colname = c.getColumnName(i);");
+        PsiMethod prevMethod = getMembers().findMethod("createFromCursor", "android.database.Cursor");
+        PsiMethod method     = createMethod(getTextGenerator().generateCreateFromCursor());
+        shorten(addAfterOrReplace(prevMethod, method));
+    }
 
-        final int nmFields = mFields.size();
-        int cnFields = 0;
+    /**
+     * Generates COL_IDX_* constants aligned with FULL_PROJECTION and a createFromCursorFullProjection()
+     * reading each field by its constant index. Valid only for cursors queried with FULL_PROJECTION.
+     */
+    public void generateCreateFromCursorFullProjection() {
+        generateEnumCodecs();
+        generateForeignKeyReferences();
+        final ModelTextGenerator textGenerator = getTextGenerator();
 
-        for (PsiField field : mFields) {
-            String fieldName = getFieldName(field.getName());
-            final boolean lastOne = cnFields + 1 == nmFields;
-            if (cnFields > 0){
-                sb.append(" else ");
-            }
+        // Column index constants, same order as generateFullProjection().
+        PsiElement prevField = null;
+        FieldDef projectionField = getMembers().findField("FULL_PROJECTION");
+        if (projectionField != null){
+            prevField = projectionField.field;
+        }
 
-            String sqlDeserializer = getSqlDeserializer(field);
+        int colIdx = 0;
+        for (FieldSpec field : textGenerator.getSpec().getColumns()) {
+            String idxName = field.getColumnIndexConstant();
+            String idxValue = String.valueOf(colIdx);
+
+            // Present with the same index, keep it. Stale index is replaced in place, missing one added under the previous one.
+            FieldDef prevIdxField = getMembers().findField(idxName);
+            if (prevIdxField != null){
+                prevField = prevIdxField.field;
+                if (!idxValue.equals(prevIdxField.initializer)){
+                    replaceInitializer(prevIdxField.field, idxValue);
+                }
 
-            sb.append("if (").append(fieldName).append(".equals(colname)){\n");
-            sb.append("this.").append(field.getName()).append(" = ").append(sqlDeserializer).append(";\n");
-            sb.append("}");
-            cnFields += 1;
+                colIdx++;
+                continue;
+            }
+
+            PsiField curField  = createField(textGenerator.generateColumnIndexConstant(field, colIdx++));
+            PsiElement element = prevField == null ? addAsLast(curField) : addAfter(curField, prevField);
+            prevField = shorten(element);
         }
 
-        if (nmFields > 0){
-            sb.append("else {\n" +
-                    "Log.w(THIS_FILE, \"Unknown column name: \" + colname);\n" +
-                    "}");
+        // Reader method.
+        PsiMethod prevMethod = getMembers().findMethod("createFromCursorFullProjection", "android.database.Cursor");
+        PsiMethod method     = createMethod(textGenerator.generateCreateFromCursorFullProjection());
+        shorten(addAfterOrReplace(prevMethod, method));
+    }
+
+    /**
+     * Generates ColumnMap helper resolving column indexes once per Cursor (-1 if column is missing)
+     * and createFromCursor(Cursor, ColumnMap) reading only present columns by cached index.
+     * With foreign keys also JOIN_TABLES, JOIN_PROJECTION, JoinedColumnMap and createFromJoinedCursor()
+     * reading the model with its referenced models from a single joined query.
+     */
+    public void generateCreateFromCursorColumnMap() {
+        generateEnumCodecs();
+        generateForeignKeyReferences();
+
+        // Column map helper class, regenerated in place as referencing models need its current constructors.
+        replaceOrAddLast(mClass.findInnerClassByName(COLUMN_MAP_NAME, false),
+                createClass(getTextGenerator().generateColumnMap()).getInnerClasses()[0]);
+
+        // Reader method.
+        PsiMethod prevMethod = getMembers().findMethod("createFromCursor", "android.database.Cursor", mClass.getQualifiedName() + "." + COLUMN_MAP_NAME);
+        PsiMethod method     = createMethod(getTextGenerator().generateCreateFromCursorColumnMap());
+        shorten(addAfterOrReplace(prevMethod, method));
+
+        if (getTextGenerator().hasForeignKeys()){
+            generateJoin();
         }
+    }
 
-        sb.append("}\n}\n");
+    private void generateJoin() {
+        final ModelTextGenerator textGenerator = getTextGenerator();
+        replaceOrAddLast(getMembers().findOwnField(ModelTextGenerator.JOIN_TABLES_NAME), createField(textGenerator.generateJoinTables()));
+        replaceOrAddLast(getMembers().findOwnField(ModelTextGenerator.JOIN_PROJECTION_NAME), createField(textGenerator.generateJoinProjection()));
+        replaceOrAddLast(mClass.findInnerClassByName(ModelTextGenerator.JOINED_COLUMN_MAP_NAME, false),
+                createClass(textGenerator.generateJoinedColumnMap()).getInnerClasses()[0]);
+        replaceOrAddLast(getMembers().findMethod("createFromJoinedCursor", "android.database.Cursor",
+                        mClass.getQualifiedName() + "." + ModelTextGenerator.JOINED_COLUMN_MAP_NAME),
+                createMethod(textGenerator.generateCreateFromJoinedCursor()));
+    }
 
-        PsiMethod prevMethod = PsiUtils.findMethod(mClass, "createFromCursor", "android.database.Cursor");
-        PsiMethod method     = elementFactory.createMethodFromText(sb.toString(), mClass);
-        PsiElement element   = prevMethod == null ? addAsLast(method) : mClass.addAfter(method, prevMethod);
-        styleManager.shortenClassReferences(element);
+    /**
+     * Generates factories of referenced models holding only the id, used by cursor readers for foreign key columns.
+     */
+    private void generateForeignKeyReferences() {
+        for (FieldSpec fieldSpec : getSpec().getColumns()) {
+            if (fieldSpec.getForeignKey() != null){
+                replaceOrAddLast(getMembers().findMethod(fieldSpec.getReferenceFactoryName(), "long"),
+                        createMethod(getTextGenerator().generateForeignKeyReference(fieldSpec)));
+            }
+        }
     }
 
     public void generateGetDbContentValues() {
-        PsiElementFactory elementFactory = JavaPsiFacade.getElementFactory(mClass.getProject());
-        JavaCodeStyleManager styleManager = JavaCodeStyleManager.getInstance(mClass.getProject());
+        generateEnumCodecs();
 
-        StringBuilder sb = new StringBuilder("public ContentValues getDbContentValues() {\n" +
-                "    ContentValues args = new ContentValues();");
+        PsiMethod prevMethod = getMembers().findMethod("getDbContentValues");
+        PsiMethod method     = createMethod(getTextGenerator().generateGetDbContentValues());
+        shorten(addAfterOrReplace(prevMethod, method));
+    }
 
-        final int nmFields = mFields.size();
-        int cnFields = 0;
+    /**
+     * Generates INSERT_SQL constant, bindTo(SQLiteStatement) binding all fields to the INSERT_SQL statement
+     * and static insertAll(SQLiteDatabase, Iterable) inserting all items with one compiled statement
+     * in a single transaction.
+     */
+    public void generateInsertStatement() {
+        generateEnumCodecs();
+        final ModelTextGenerator textGenerator = getTextGenerator();
+
+        // INSERT_SQL constant.
+        FieldDef prevField = getMembers().findField("INSERT_SQL");
+        PsiField sqlField  = createField(textGenerator.generateInsertSql());
+        shorten(addAfterOrReplace(prevField == null ? null : prevField.field, sqlField));
+
+        // Binding method.
+        PsiMethod prevMethod = getMembers().findMethod("bindTo", "android.database.sqlite.SQLiteStatement");
+        PsiMethod method     = createMethod(textGenerator.generateBindTo());
+        shorten(addAfterOrReplace(prevMethod, method));
+
+        // Bulk insert.
+        prevMethod = getMembers().findMethod("insertAll", "android.database.sqlite.SQLiteDatabase", "java.lang.Iterable<" + mClass.getQualifiedName() + ">");
+        method     = createMethod(textGenerator.generateInsertAll());
+        shorten(addAfterOrReplace(prevMethod, method));
+    }
+
+    /**
+     * Generates dirty field tracking. Each field gets a DIRTY_* bit in the long dirtyMask field, setters mark
+     * the bit. getDirtyContentValues(), getDirtyUpdateSql() and bindDirtyUpdate() write only changed columns.
+     * Supports up to DIRTY_MASK_BITS fields. A rerun updates the existing members in place.
+     */
+    public void generateDirtyTracking() {
+        if (mFields.size() > DIRTY_MASK_BITS){
+            throw new IllegalArgumentException("Dirty tracking supports at most " + DIRTY_MASK_BITS + " fields");
+        }
 
-        for (PsiField field : mFields) {
-            String fieldName = getFieldName(field.getName());
-            PsiType fieldType = field.getType();
-            String cnType = fieldType.getCanonicalText();
-            final boolean lastOne = cnFields + 1 == nmFields;
-            final boolean primitiveType = isPrimitiveType(fieldType);
-            if (!primitiveType){
-                sb.append("if (this."+(field.getName())+" != null)\n");
-                sb.append("    ");
+        generateEnumCodecs();
+        final ModelTextGenerator textGenerator = getTextGenerator();
+        final List<FieldSpec> fieldSpecs = textGenerator.getSpec().getColumns();
+
+        // Bit constants.
+        PsiElement prevField = null;
+        int bit = 0;
+        for (FieldSpec field : fieldSpecs) {
+            String bitName = field.getDirtyBitConstant();
+            String bitValue = textGenerator.getDirtyBitValue(bit);
+
+            FieldDef prevBitField = getMembers().findField(bitName);
+            if (prevBitField != null){
+                prevField = prevBitField.field;
+                final PsiExpression initializer = prevBitField.field.getInitializer();
+                if (initializer == null || !bitValue.equals(initializer.getText())){
+                    replaceInitializer(prevBitField.field, bitValue);
+                }
+
+                bit++;
+                continue;
             }
 
-            final String sqlSerializer = getSqlSerializer(field);
-            sb.append("args.put(" + fieldName + ", " + (sqlSerializer) + ");\n");
+            PsiField curField  = createField(textGenerator.generateDirtyBitConstant(field, bit++));
+            PsiElement element = prevField == null ? addAsLast(curField) : addAfter(curField, prevField);
+            prevField = shorten(element);
+        }
 
-            cnFields += 1;
+        // Mask field.
+        if (getMembers().findField(DIRTY_MASK_NAME) == null){
+            PsiField maskField = createField("private long " + DIRTY_MASK_NAME + ";\n");
+            shorten(prevField == null ? addAsLast(maskField) : addAfter(maskField, prevField));
         }
 
-        sb.append("return args;\n}");
+        // Setters marking the bit, existing setters get the marking statement after the field assignment.
+        for (FieldSpec field : fieldSpecs) {
+            final PsiMethod prevSetter = getMembers().findMethod(field.getSetterName(), field.getType());
+            if (prevSetter != null){
+                markDirtyInSetter(prevSetter, field);
+                continue;
+            }
+
+            shorten(addAsLast(createMethod(textGenerator.generateDirtySetter(field))));
+        }
 
-        PsiMethod prevMethod = PsiUtils.findMethod(mClass, "getDbContentValues");
-        PsiMethod method     = elementFactory.createMethodFromText(sb.toString(), mClass);
-        PsiElement element   = prevMethod == null ? addAsLast(method) : mClass.addAfter(method, prevMethod);
-        styleManager.shortenClassReferences(element);
+        // Dirty writers and mask accessors.
+        replaceOrAddLast(getMembers().findMethod("getDirtyContentValues"), createMethod(textGenerator.generateGetDirtyContentValues()));
+        replaceOrAddLast(getMembers().findMethod("getDirtyUpdateSql", "java.lang.String"), createMethod(textGenerator.generateGetDirtyUpdateSql()));
+        replaceOrAddLast(getMembers().findMethod("bindDirtyUpdate", "android.database.sqlite.SQLiteStatement"), createMethod(textGenerator.generateBindDirtyUpdate()));
+        replaceOrAddLast(getMembers().findMethod("isDirty"),
+                createMethod("public boolean isDirty() { return " + DIRTY_MASK_NAME + " != 0; }"));
+        replaceOrAddLast(getMembers().findMethod("clearDirty"),
+                createMethod("public void clearDirty() { " + DIRTY_MASK_NAME + " = 0; }"));
     }
 
-    private String rightPad(String name, int desiredSize){
-        final int ln = name.length();
-        if (desiredSize <= ln){
-            return name;
+    /**
+     * Inserts the dirty marking statement right after the last assignment of the field in the setter, or as the first
+     * statement if the setter does not assign it directly. Setters already referencing the DIRTY_* constant are kept.
+     */
+    private void markDirtyInSetter(PsiMethod setter, FieldSpec field) {
+        final PsiCodeBlock body = setter.getBody();
+        final PsiField bitField = getMembers().findOwnField(field.getDirtyBitConstant());
+        if (body == null || bitField == null || PsiUtils.references(body, bitField)){
+            return;
         }
 
-        int toAdd = desiredSize - ln;
-        StringBuilder sb = new StringBuilder(name);
-        for(int i=0; i<toAdd; i++){
-            sb.append(" ");
+        // An assignment nested in e.g. a return or if statement is marked before the statement, keeping the mark reachable.
+        final PsiStatement mark = createStatement(getTextGenerator().generateDirtyMarkStatement(field), setter);
+        final PsiStatement assignment = PsiUtils.findLastAssignment(body, getMembers().findOwnField(field.getName()));
+        if (assignment instanceof PsiExpressionStatement){
+            addAfter(assignment.getParent(), mark, assignment);
+        } else if (assignment != null){
+            addBefore(assignment.getParent(), mark, assignment);
+        } else {
+            addAfter(body, mark, body.getLBrace());
         }
+    }
 
-        return sb.toString();
+    /**
+     * In compact encoding mode generates stable enum code mapping for each enum field type:
+     * X_CODES table and encodeX()/decodeX() methods. Code is the position in the X_CODES table.
+     * Existing table is kept, new enum constants are appended and removed ones are replaced with null,
+     * so stored codes survive reordering of the enum.
+     */
+    private void generateEnumCodecs() {
+        if (!mCompactEncoding){
+            return;
+        }
+
+        final List<FieldSpec> fieldSpecs = getSpec().getFields();
+        final Set<String> generated = new HashSet<String>();
+        for (int i = 0; i < fieldSpecs.size(); i++) {
+            final FieldSpec fieldSpec = fieldSpecs.get(i);
+            final String enumName = fieldSpec.getEnumName();
+            if (enumName == null || !generated.add(enumName)){
+                continue;
+            }
+
+            final PsiClass enumClass = getEnumClass(mFields.get(i));
+            final String tableName = fieldSpec.getEnumTableName();
+
+            // Current enum constants.
+            List<String> constants = new ArrayList<String>();
+            for (PsiField enumField : enumClass.getFields()) {
+                if (enumField instanceof PsiEnumConstant){
+                    constants.add(enumField.getName());
+                }
+            }
+
+            // Previous mapping, if any.
+            List<String> codes = new ArrayList<String>();
+            FieldDef prevTable = getMembers().findField(tableName);
+            if (prevTable != null && prevTable.field.getInitializer() instanceof PsiNewExpression){
+                PsiArrayInitializerExpression prevInit = ((PsiNewExpression) prevTable.field.getInitializer()).getArrayInitializer();
+                if (prevInit != null){
+                    for (PsiExpression expression : prevInit.getInitializers()) {
+                        final String text = expression.getText();
+                        final String constant = text.substring(text.lastIndexOf('.') + 1);
+                        codes.add(constants.contains(constant) ? constant : null);
+                    }
+                }
+            }
+
+            for (String constant : constants) {
+                if (!codes.contains(constant)){
+                    codes.add(constant);
+                }
+            }
+
+            // Mapping table.
+            StringBuilder table = new StringBuilder("private static final " + enumName + "[] " + tableName + " = new " + enumName + "[] {\n");
+            StringBuilder encoder = new StringBuilder("private static int " + fieldSpec.getEnumEncoderName() + "(" + enumName + " value) {\n" +
+                    "switch (value) {\n");
+            for (int code = 0; code < codes.size(); code++) {
+                final String constant = codes.get(code);
+                table.append(constant == null ? "null" : enumName + "." + constant).append(code + 1 == codes.size() ? "\n" : ",\n");
+                if (constant != null){
+                    encoder.append("case ").append(constant).append(": return ").append(code).append(";\n");
+                }
+            }
+
+            table.append("};\n");
+            encoder.append("default: throw new IllegalArgumentException(\"Unknown enum value \" + value);\n}\n}\n");
+
+            final String decoder = "private static " + enumName + " " + fieldSpec.getEnumDecoderName() + "(int code) {\n" +
+                    "return code >= 0 && code < " + tableName + ".length ? " + tableName + "[code] : null;\n" +
+                    "}\n";
+
+            replaceOrAddLast(prevTable == null ? null : prevTable.field, createField(table.toString()));
+            replaceOrAddLast(getMembers().findMethod(fieldSpec.getEnumEncoderName(), enumName),
+                    createMethod(encoder.toString()));
+            replaceOrAddLast(getMembers().findMethod(fieldSpec.getEnumDecoderName(), "int"),
+                    createMethod(decoder));
+        }
+    }
+
+    private void replaceOrAddLast(PsiElement prevElement, PsiElement element){
+        PsiElement added = prevElement == null ? addAsLast(element) : replace(prevElement, element);
+        shorten(added);
+    }
+
+    private void replaceOrAddAfter(PsiElement prevElement, PsiElement element, PsiElement anchor){
+        if (prevElement != null){
+            shorten(replace(prevElement, element));
+        } else {
+            addAfterOrLast(anchor, element);
+        }
+    }
+
+    /**
+     * Replaces the initializer of an existing constant whose value changed and marks it "TODO: verify",
+     * as {@link #generateFields()} does, so references to the old value get reviewed.
+     */
+    private void replaceInitializer(PsiField field, String value){
+        final PsiElementFactory factory = JavaPsiFacade.getElementFactory(mClass.getProject());
+        final PsiExpression initializer = field.getInitializer();
+        final PsiExpression newInitializer = factory.createExpressionFromText(value, field);
+        if (initializer == null){
+            field.setInitializer(newInitializer);
+        } else {
+            replace(initializer, newInitializer);
+        }
+
+        if (!field.getText().contains(VERIFY_COMMENT)){
+            field.addAfter(factory.createCommentFromText("//" + VERIFY_COMMENT, field), field.getLastChild());
+        }
+
+        getMembers().memberReplaced(field);
+    }
+
+    private PsiClass getEnumClass(PsiField field){
+        final GenerationMetrics.Stage previous = mMetrics.enter(GenerationMetrics.Stage.FIELD_ANALYSIS);
+        try {
+            if (!(field.getType() instanceof PsiClassType)){
+                return null;
+            }
+
+            PsiClass resolved = ((PsiClassType) field.getType()).resolve();
+            return resolved != null && resolved.isEnum() ? resolved : null;
+        } finally {
+            mMetrics.exit(previous);
+        }
+    }
+
+    /**
+     * Places a regenerated member after the existing one, or replaces it, see {@link #setReplaceExisting(boolean)}.
+     * Inherited members are never replaced, the member is added last then.
+     */
+    private PsiElement addAfterOrReplace(PsiElement prevElement, PsiElement element){
+        if (prevElement == null){
+            return addAsLast(element);
+        }
+
+        if (!mReplaceExisting){
+            return addAfter(element, prevElement);
+        }
+
+        return prevElement.getParent() == mClass ? replace(prevElement, element) : addAsLast(element);
+    }
+
+    private void addAfterOrLast(PsiElement prevElement, PsiElement element){
+        PsiElement added = prevElement == null ? addAsLast(element) : addAfter(element, prevElement);
+        shorten(added);
     }
 
     private boolean isPrimitiveType(PsiType type){
@@ -379,56 +1327,133 @@ public class CodeGenerator {
             return "INTEGER DEFAULT 0";
         }
 
+        // Compact encoding - enum code.
+        if (mCompactEncoding && getEnumClass(field) != null){
+            return "INTEGER";
+        }
+
         // By default, return TEXT.
         return "TEXT";
     }
 
-    private String getSqlSerializer(PsiField field){
-        String typeStr = field.getType().getCanonicalText();
-        if ("java.util.Date".equalsIgnoreCase(typeStr)) {
-            return (field.getName()) + ".getTime()";
-        } else if ("boolean".equals(typeStr) || "java.lang.Boolean".equalsIgnoreCase(typeStr)){
-            return field.getName() + " ? 1 : 0";
-        } else {
-            return field.getName();
+    /**
+     * Shortens class references in the element, or only records the element if shortening is deferred
+     * to the end of the run, see {@link #generateAll(Set)}.
+     */
+    private PsiElement shorten(PsiElement element){
+        if (mShortenedElements != null){
+            mShortenedElements.add(element);
+            return element;
+        }
+
+        final GenerationMetrics.Stage previous = mMetrics.enter(GenerationMetrics.Stage.SHORTEN_REFERENCES);
+        try {
+            return JavaCodeStyleManager.getInstance(mClass.getProject()).shortenClassReferences(element);
+        } finally {
+            mMetrics.exit(previous);
         }
     }
 
-    private String getSqlDeserializer(PsiField field){
-        String typeStr = field.getType().getCanonicalText();
-        if ("byte".equals(typeStr)) {
-            return "(byte) c.getInt(i)";
-        } else if ("java.lang.Byte".equals(typeStr)){
-            return "(Byte) c.getInt(i)";
-        } else if ("short".equals(typeStr)){
-            return "c.getShort(i)";
-        } else if ("int".equals(typeStr) || "java.lang.Integer".equals(typeStr)){
-            return "c.getInt(i)";
-        } else if ("long".equals(typeStr) || "java.lang.Long".equals(typeStr)){
-            return "c.getLong(i)";
-        }  else if ("double".equals(typeStr) || "java.lang.Double".equals(typeStr)){
-            return "c.getDouble(i)";
-        } else if ("float".equals(typeStr) || "java.lang.Float".equals(typeStr)){
-            return "c.getFloat(i)";
-        } else if ("byte[]".equals(typeStr)){
-            return "c.getBlob(i)";
-        } else if ("boolean".equals(typeStr)){
-            return "c.getInt(i) == 1";
-        } else if ("java.lang.Boolean".equals(typeStr)) {
-            return "(Boolean) (c.getInt(i) == 1)";
-        } else if ("java.util.Date".equals(typeStr)){
-            return "new Date(c.getLong(i))";
-        } else {
-            return "c.getString(i)";
+    private PsiElement addAsLast(PsiElement elem){
+        final GenerationMetrics.Stage previous = mMetrics.enter(GenerationMetrics.Stage.INSERTION);
+        try {
+            final PsiElement added = mClass.addBefore(elem, mClass.getLastChild());
+            getMembers().memberAdded(added);
+            return added;
+        } finally {
+            mMetrics.exit(previous);
         }
     }
 
-    private String getFieldName(String varName){
-        return "FIELD_" + CaseFormat.UPPER_CAMEL.to(CaseFormat.UPPER_UNDERSCORE, varName);
+    private PsiElement addAfter(PsiElement elem, PsiElement anchor){
+        final GenerationMetrics.Stage previous = mMetrics.enter(GenerationMetrics.Stage.INSERTION);
+        try {
+            final PsiElement added = mClass.addAfter(elem, anchor);
+            getMembers().memberAdded(added);
+            return added;
+        } finally {
+            mMetrics.exit(previous);
+        }
     }
 
-    private PsiElement addAsLast(PsiElement elem){
-        return mClass.addBefore(elem, mClass.getLastChild());
+    private PsiElement addAfter(PsiElement parent, PsiElement elem, PsiElement anchor){
+        final GenerationMetrics.Stage previous = mMetrics.enter(GenerationMetrics.Stage.INSERTION);
+        try {
+            return parent.addAfter(elem, anchor);
+        } finally {
+            mMetrics.exit(previous);
+        }
+    }
+
+    private PsiElement addBefore(PsiElement parent, PsiElement elem, PsiElement anchor){
+        final GenerationMetrics.Stage previous = mMetrics.enter(GenerationMetrics.Stage.INSERTION);
+        try {
+            return parent.addBefore(elem, anchor);
+        } finally {
+            mMetrics.exit(previous);
+        }
+    }
+
+    private PsiElement replace(PsiElement existing, PsiElement elem){
+        final GenerationMetrics.Stage previous = mMetrics.enter(GenerationMetrics.Stage.INSERTION);
+        try {
+            final PsiElement replaced = existing.replace(elem);
+            getMembers().memberReplaced(replaced);
+            return replaced;
+        } finally {
+            mMetrics.exit(previous);
+        }
+    }
+
+    private PsiMethod createMethod(String text){
+        final PsiElement prepared = mPrepared.remove(text);
+        if (prepared != null){
+            return (PsiMethod) prepared;
+        }
+
+        final GenerationMetrics.Stage previous = mMetrics.enter(GenerationMetrics.Stage.PSI_PARSE);
+        try {
+            return JavaPsiFacade.getElementFactory(mClass.getProject()).createMethodFromText(text, mClass);
+        } finally {
+            mMetrics.exit(previous);
+        }
+    }
+
+    private PsiField createField(String text){
+        final PsiElement prepared = mPrepared.remove(text);
+        if (prepared != null){
+            return (PsiField) prepared;
+        }
+
+        final GenerationMetrics.Stage previous = mMetrics.enter(GenerationMetrics.Stage.PSI_PARSE);
+        try {
+            return JavaPsiFacade.getElementFactory(mClass.getProject()).createFieldFromText(text, mClass);
+        } finally {
+            mMetrics.exit(previous);
+        }
+    }
+
+    private PsiClass createClass(String text){
+        final PsiElement prepared = mPrepared.remove(text);
+        if (prepared != null){
+            return (PsiClass) prepared;
+        }
+
+        final GenerationMetrics.Stage previous = mMetrics.enter(GenerationMetrics.Stage.PSI_PARSE);
+        try {
+            return JavaPsiFacade.getElementFactory(mClass.getProject()).createClassFromText(text, mClass);
+        } finally {
+            mMetrics.exit(previous);
+        }
+    }
+
+    private PsiStatement createStatement(String text, PsiElement context){
+        final GenerationMetrics.Stage previous = mMetrics.enter(GenerationMetrics.Stage.PSI_PARSE);
+        try {
+            return JavaPsiFacade.getElementFactory(mClass.getProject()).createStatementFromText(text, context);
+        } finally {
+            mMetrics.exit(previous);
+        }
     }
 
     /**
@@ -446,9 +1471,9 @@ public class CodeGenerator {
             }
         }
 
-        findAndRemoveMethod(psiClass, psiClass.getName(), "android.os.Parcel");
-        findAndRemoveMethod(psiClass, "describeContents");
-        findAndRemoveMethod(psiClass, "writeToParcel", "android.os.Parcel", "int");
+        findAndRemoveMethod(psiClass.getName(), "android.os.Parcel");
+        findAndRemoveMethod("describeContents");
+        findAndRemoveMethod("writeToParcel", "android.os.Parcel", "int");
     }
 
     private String generateDefaultConstructor(PsiClass clazz) {
@@ -463,7 +1488,7 @@ public class CodeGenerator {
         }
     }
 
-    private void makeClassImplementParcelable(PsiElementFactory elementFactory) {
+    private void makeClassImplementParcelable() {
         final PsiClassType[] implementsListTypes = mClass.getImplementsListTypes();
         final String implementsType = "android.os.Parcelable";
 
@@ -476,7 +1501,8 @@ public class CodeGenerator {
             }
         }
 
-        PsiJavaCodeReferenceElement implementsReference = elementFactory.createReferenceFromText(implementsType, mClass);
+        PsiJavaCodeReferenceElement implementsReference = JavaPsiFacade.getElementFactory(mClass.getProject())
+                .createReferenceFromText(implementsType, mClass);
         PsiReferenceList implementsList = mClass.getImplementsList();
 
         if (implementsList != null) {
@@ -484,28 +1510,10 @@ public class CodeGenerator {
         }
     }
 
-    private static void findAndRemoveMethod(PsiClass clazz, String methodName, String... arguments) {
-        // Maybe there's an easier way to do this with mClass.findMethodBySignature(), but I'm not an expert on Psi*
-        PsiMethod[] methods = clazz.findMethodsByName(methodName, false);
-
-        for (PsiMethod method : methods) {
-            PsiParameterList parameterList = method.getParameterList();
-
-            if (parameterList.getParametersCount() == arguments.length) {
-                boolean shouldDelete = true;
-
-                PsiParameter[] parameters = parameterList.getParameters();
-
-                for (int i = 0; i < arguments.length; i++) {
-                    if (!parameters[i].getType().getCanonicalText().equals(arguments[i])) {
-                        shouldDelete = false;
-                    }
-                }
-
-                if (shouldDelete) {
-                    method.delete();
-                }
-            }
+    private void findAndRemoveMethod(String methodName, String... arguments) {
+        final PsiMethod method = getMembers().findMethod(methodName, arguments);
+        if (method != null) {
+            method.delete();
         }
     }
 
@@ -30,7 +30,9 @@ public class CreateFromCursorAction extends AnAction {
     public void actionPerformed(AnActionEvent e) {
         PsiClass psiClass = PsiUtils.getPsiClassFromContext(e);
 
-        GenerateDialog dlg = new GenerateDialog(psiClass);
+        GenerateDialog dlg = new GenerateDialog(psiClass, GenerateDialog.DialogOption.DB_ENCODING,
+                GenerateDialog.DialogOption.COLUMN_ORDER,
+                GenerateDialog.DialogOption.FOREIGN_KEYS);
         dlg.show();
 
         if (dlg.isOK()) {
@@ -42,7 +44,9 @@ public class CreateFromCursorAction extends AnAction {
         new WriteCommandAction.Simple(psiClass.getProject(), psiClass.getContainingFile()) {
             @Override
             protected void run() throws Throwable {
-                new CodeGenerator(psiClass, fields).generateCreateFromCursor();
+                CodeGenerator generator = new CodeGenerator(psiClass, fields);
+                generator.generateArtifact(Artifact.CREATE_FROM_CURSOR);
+                generator.getMetrics().report(psiClass.getProject(), Artifact.CREATE_FROM_CURSOR.getText() + " for " + psiClass.getName());
             }
         }.execute();
     }
@@ -20,6 +20,7 @@ import com.intellij.openapi.actionSystem.AnActionEvent;
 import com.intellij.openapi.command.WriteCommandAction;
 import com.intellij.psi.PsiClass;
 import com.intellij.psi.PsiField;
+import net.phonex.intellij.android.dbmodel.util.IndexDef;
 import net.phonex.intellij.android.dbmodel.util.PsiUtils;
 
 import java.util.List;
@@ -30,19 +31,23 @@ public class CreateTableAction extends AnAction {
     public void actionPerformed(AnActionEvent e) {
         PsiClass psiClass = PsiUtils.getPsiClassFromContext(e);
 
-        GenerateDialog dlg = new GenerateDialog(psiClass);
+        GenerateDialog dlg = new GenerateDialog(psiClass, GenerateDialog.DialogOption.INDEXES, GenerateDialog.DialogOption.DB_ENCODING,
+                GenerateDialog.DialogOption.COLUMN_ORDER,
+                GenerateDialog.DialogOption.FOREIGN_KEYS);
         dlg.show();
 
         if (dlg.isOK()) {
-            generateParcelable(psiClass, dlg.getSelectedFields());
+            generateParcelable(psiClass, dlg.getSelectedFields(), dlg.getIndexes());
         }
     }
 
-    private void generateParcelable(final PsiClass psiClass, final List<PsiField> fields) {
+    private void generateParcelable(final PsiClass psiClass, final List<PsiField> fields, final List<IndexDef> indexes) {
         new WriteCommandAction.Simple(psiClass.getProject(), psiClass.getContainingFile()) {
             @Override
             protected void run() throws Throwable {
-                new CodeGenerator(psiClass, fields).generateCreateTable();
+                CodeGenerator generator = new CodeGenerator(psiClass, fields).setIndexes(indexes);
+                generator.generateArtifact(Artifact.CREATE_TABLE);
+                generator.getMetrics().report(psiClass.getProject(), Artifact.CREATE_TABLE.getText() + " for " + psiClass.getName());
             }
         }.execute();
     }
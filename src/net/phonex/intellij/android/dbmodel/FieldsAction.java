@@ -42,7 +42,9 @@ public class FieldsAction extends AnAction {
         new WriteCommandAction.Simple(psiClass.getProject(), psiClass.getContainingFile()) {
             @Override
             protected void run() throws Throwable {
-                new CodeGenerator(psiClass, fields).generateFields();
+                CodeGenerator generator = new CodeGenerator(psiClass, fields);
+                generator.generateArtifact(Artifact.FIELDS);
+                generator.getMetrics().report(psiClass.getProject(), Artifact.FIELDS.getText() + " for " + psiClass.getName());
             }
         }.execute();
     }
@@ -30,7 +30,7 @@ public class FullProjectionAction extends AnAction {
     public void actionPerformed(AnActionEvent e) {
         PsiClass psiClass = PsiUtils.getPsiClassFromContext(e);
 
-        GenerateDialog dlg = new GenerateDialog(psiClass);
+        GenerateDialog dlg = new GenerateDialog(psiClass, GenerateDialog.DialogOption.COLUMN_ORDER);
         dlg.show();
 
         if (dlg.isOK()) {
@@ -42,7 +42,9 @@ public class FullProjectionAction extends AnAction {
         new WriteCommandAction.Simple(psiClass.getProject(), psiClass.getContainingFile()) {
             @Override
             protected void run() throws Throwable {
-                new CodeGenerator(psiClass, fields).generateFullProjection();
+                CodeGenerator generator = new CodeGenerator(psiClass, fields);
+                generator.generateArtifact(Artifact.FULL_PROJECTION);
+                generator.getMetrics().report(psiClass.getProject(), Artifact.FULL_PROJECTION.getText() + " for " + psiClass.getName());
             }
         }.execute();
     }
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2015 Dusan Klinec Ph4r05.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.phonex.intellij.android.dbmodel;
+
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiField;
+import com.intellij.psi.PsiFile;
+import net.phonex.intellij.android.dbmodel.util.IndexDef;
+import net.phonex.intellij.android.dbmodel.util.PsiUtils;
+
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * Generates all selected artifacts in a single write command, with one import shortening pass.
+ * Members are built and parsed beforehand under a modal progress, see {@link CodeGenerator#prepare(java.util.Set)}.
+ */
+public class GenerateAllAction extends AnAction {
+
+    @Override
+    public void actionPerformed(AnActionEvent e) {
+        PsiClass psiClass = PsiUtils.getPsiClassFromContext(e);
+
+        GenerateDialog dlg = new GenerateDialog(psiClass, GenerateDialog.DialogOption.INDEXES,
+                GenerateDialog.DialogOption.DB_ENCODING, GenerateDialog.DialogOption.PARCEL_ENCODING,
+                GenerateDialog.DialogOption.ARTIFACTS, GenerateDialog.DialogOption.COLUMN_ORDER,
+                GenerateDialog.DialogOption.FOREIGN_KEYS, GenerateDialog.DialogOption.FULL_TEXT,
+                GenerateDialog.DialogOption.SORT_KEY);
+        dlg.show();
+
+        if (!dlg.isOK()) {
+            return;
+        }
+
+        final List<PsiField> fields = dlg.getSelectedFields();
+        final EnumSet<Artifact> artifacts = dlg.getSelectedArtifacts();
+        if (artifacts.contains(Artifact.DIRTY_TRACKING) && fields.size() > CodeGenerator.DIRTY_MASK_BITS) {
+            Messages.showErrorDialog(psiClass.getProject(),
+                    "Dirty tracking supports at most " + CodeGenerator.DIRTY_MASK_BITS + " fields, " + fields.size() + " selected.",
+                    "Dirty Tracking");
+            return;
+        }
+
+        generateAll(psiClass, fields, dlg.getIndexes(), artifacts);
+    }
+
+    private void generateAll(final PsiClass psiClass, final List<PsiField> fields, final List<IndexDef> indexes,
+                             final EnumSet<Artifact> artifacts) {
+        final Project project = psiClass.getProject();
+        final CodeGenerator[] generator = new CodeGenerator[1];
+        final PsiFile[][] files = new PsiFile[1][];
+
+        // Field analysis, serializer resolution, text building and parsing run under a progress, off the write command.
+        final boolean completed = ProgressManager.getInstance().runProcessWithProgressSynchronously(new Runnable() {
+            @Override
+            public void run() {
+                ApplicationManager.getApplication().runReadAction(new Runnable() {
+                    @Override
+                    public void run() {
+                        generator[0] = new CodeGenerator(psiClass, fields).setIndexes(indexes).prepare(artifacts);
+                        files[0] = CodeGenerator.getAffectedFiles(psiClass, fields);
+                    }
+                });
+            }
+        }, "Preparing DB model", true, project);
+
+        if (!completed || !psiClass.isValid()) {
+            return;
+        }
+
+        new WriteCommandAction.Simple(project, "Generate DB model", files[0]) {
+            @Override
+            protected void run() throws Throwable {
+                generator[0].generateAll(artifacts);
+                generator[0].getMetrics().report(project, artifacts.size() + " artifacts for " + psiClass.getName());
+            }
+        }.execute();
+    }
+
+
+    @Override
+    public void update(AnActionEvent e) {
+        PsiClass psiClass = PsiUtils.getPsiClassFromContext(e);
+        e.getPresentation().setEnabled(psiClass != null && !psiClass.isEnum() && !psiClass.isInterface());
+    }
+}
@@ -15,56 +15,280 @@
  */
 package net.phonex.intellij.android.dbmodel;
 
+import com.intellij.icons.AllIcons;
 import com.intellij.ide.util.DefaultPsiElementCellRenderer;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.DialogWrapper;
 import com.intellij.openapi.ui.LabeledComponent;
+import com.intellij.openapi.util.Computable;
+import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiCompiledElement;
+import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiField;
-import com.intellij.psi.PsiModifier;
+import com.intellij.psi.PsiPrimitiveType;
+import com.intellij.psi.util.PsiTypesUtil;
+import com.intellij.ui.AnActionButton;
 import com.intellij.ui.CollectionListModel;
 import com.intellij.ui.ToolbarDecorator;
 import com.intellij.ui.components.JBList;
+import com.intellij.ui.components.JBLoadingPanel;
+import net.phonex.intellij.android.dbmodel.spec.FieldSpec;
+import net.phonex.intellij.android.dbmodel.util.IndexDef;
+import net.phonex.intellij.android.dbmodel.util.PsiUtils;
 import org.jetbrains.annotations.Nullable;
 
 import javax.swing.*;
+import java.awt.*;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class GenerateDialog extends DialogWrapper {
 
-    private final LabeledComponent<JPanel> myComponent;
+    /**
+     * Index marks for fields, used for CREATE INDEX generation.
+     */
+    public enum IndexMark {
+        INDEX("index"),
+        UNIQUE("unique index"),
+        COMPOSITE("composite index");
+
+        private final String label;
+
+        IndexMark(String label) {
+            this.label = label;
+        }
+    }
+
+    /**
+     * Optional parts of the dialog.
+     */
+    public enum DialogOption {
+        /**
+         * Fields can be marked as indexed, unique-indexed or part of a composite index.
+         */
+        INDEXES,
+        /**
+         * Persisted DB column encoding options, see {@link GeneratorOptions}.
+         */
+        DB_ENCODING,
+        /**
+         * Persisted Parcelable encoding options, see {@link GeneratorOptions}.
+         */
+        PARCEL_ENCODING,
+        /**
+         * Selection of artifacts to generate at once, see {@link Artifact}.
+         */
+        ARTIFACTS,
+        /**
+         * Persisted DB column order option, fields can be pinned early in the order, see {@link GeneratorOptions#COLUMN_ORDER}.
+         */
+        COLUMN_ORDER,
+        /**
+         * Fields referencing other models can be marked as persisted foreign keys.
+         */
+        FOREIGN_KEYS,
+        /**
+         * String fields can be marked as full-text searchable, persisted.
+         */
+        FULL_TEXT,
+        /**
+         * One field can be chosen as the keyset pagination sort key, persisted.
+         */
+        SORT_KEY
+    }
+
+    private final JPanel myComponent;
     private CollectionListModel<PsiField> myFields;
+    private final JBList myFieldList;
+    private final Map<PsiField, IndexMark> myIndexMarks = new HashMap<PsiField, IndexMark>();
+    private final Map<PsiField, FieldSpec> myFieldSpecs = new HashMap<PsiField, FieldSpec>();
+    private final Set<String> myPinnedFields;
+    private final Set<String> myForeignKeys;
+    private final boolean myForeignKeysEditable;
+    private final Set<String> mySearchableFields;
+    private final boolean mySearchableEditable;
+    private String mySortKey;
+    private final boolean mySortKeyEditable;
+    private final PsiClass myClass;
+    private final String myClassName;
+    private final JBLoadingPanel myLoadingPanel;
+    private final Project myProject;
+    private final Map<GeneratorOptions, JCheckBox> myOptionBoxes = new EnumMap<GeneratorOptions, JCheckBox>(GeneratorOptions.class);
+    private final Map<Artifact, JCheckBox> myArtifactBoxes = new EnumMap<Artifact, JCheckBox>(Artifact.class);
 
-    protected GenerateDialog(PsiClass psiClass) {
+    protected GenerateDialog(PsiClass psiClass, DialogOption... options) {
         super(psiClass.getProject());
+        myProject = psiClass.getProject();
+        myClass = psiClass;
+        myClassName = psiClass.getQualifiedName();
+        myPinnedFields = GeneratorOptions.getPinnedColumns(myProject, myClassName);
+        myForeignKeys = GeneratorOptions.getForeignKeys(myProject, myClassName);
+        mySearchableFields = GeneratorOptions.getSearchableFields(myProject, myClassName);
+        mySortKey = GeneratorOptions.getSortKey(myProject, myClassName);
+        final List<DialogOption> dialogOptions = Arrays.asList(options);
         setTitle("Select fields for Parcelable generation");
 
-        PsiField[] allFields = psiClass.getAllFields();
-        PsiField[] fields = new PsiField[allFields.length];
+        myFields = new CollectionListModel<PsiField>();
 
-        int i = 0;
+        myFieldList = new JBList(myFields);
+        myFieldList.setCellRenderer(new DefaultPsiElementCellRenderer() {
+            @Override
+            public String getElementText(PsiElement element) {
+                final String text = super.getElementText(element);
+                final IndexMark mark = myIndexMarks.get(element);
+                final String name = ((PsiField) element).getName();
+                StringBuilder sb = new StringBuilder(text);
+                if (mark != null) {
+                    sb.append(" [").append(mark.label).append("]");
+                }
+                if (myForeignKeys.contains(name)) {
+                    sb.append(" [foreign key]");
+                }
+                if (mySearchableFields.contains(name)) {
+                    sb.append(" [searchable]");
+                }
+                if (myPinnedFields.contains(name)) {
+                    sb.append(" [pinned]");
+                }
+                if (name.equals(mySortKey)) {
+                    sb.append(" [sort key]");
+                }
 
-        for (PsiField field : allFields) {
-            // Exclude static fields
-            if (!field.hasModifierProperty(PsiModifier.STATIC)) {
-                fields[i++] = field;
+                return sb.toString();
             }
+
+            @Override
+            public String getContainerText(PsiElement element, String name) {
+                final FieldSpec spec = myFieldSpecs.get(element);
+                return spec == null ? null : "(" + StringUtil.trimEnd(spec.getSerializerKind(), "Serializer") + ", " + spec.getSqlType() + ")";
+            }
+        });
+        ToolbarDecorator decorator = ToolbarDecorator.createDecorator(myFieldList);
+        decorator.disableAddAction();
+        if (dialogOptions.contains(DialogOption.INDEXES)) {
+            decorator.addExtraAction(new IndexMarkButton("Toggle index", AllIcons.Actions.Find, IndexMark.INDEX));
+            decorator.addExtraAction(new IndexMarkButton("Toggle unique index", AllIcons.Actions.Checked, IndexMark.UNIQUE));
+            decorator.addExtraAction(new IndexMarkButton("Toggle composite index membership, in list order", AllIcons.Actions.Copy, IndexMark.COMPOSITE));
+        }
+        if (dialogOptions.contains(DialogOption.COLUMN_ORDER)) {
+            decorator.addExtraAction(new PinButton());
+        }
+        myForeignKeysEditable = dialogOptions.contains(DialogOption.FOREIGN_KEYS);
+        if (myForeignKeysEditable) {
+            decorator.addExtraAction(new ForeignKeyButton());
+        }
+        mySearchableEditable = dialogOptions.contains(DialogOption.FULL_TEXT);
+        if (mySearchableEditable) {
+            decorator.addExtraAction(new SearchableButton());
+        }
+        mySortKeyEditable = dialogOptions.contains(DialogOption.SORT_KEY);
+        if (mySortKeyEditable) {
+            decorator.addExtraAction(new SortKeyButton());
         }
+        JPanel panel = decorator.createPanel();
 
-        // i is post-incremented, so no need to add 1 for the count
-        fields = Arrays.copyOfRange(fields, 0, i);
+        myLoadingPanel = new JBLoadingPanel(new BorderLayout(), getDisposable());
+        myLoadingPanel.add(panel, BorderLayout.CENTER);
 
-        myFields = new CollectionListModel<PsiField>(fields);
+        myComponent = new JPanel(new BorderLayout());
+        myComponent.add(LabeledComponent.create(myLoadingPanel, "Fields to include in Parcelable"), BorderLayout.CENTER);
 
-        JBList fieldList = new JBList(myFields);
-        fieldList.setCellRenderer(new DefaultPsiElementCellRenderer());
-        ToolbarDecorator decorator = ToolbarDecorator.createDecorator(fieldList);
-        decorator.disableAddAction();
-        JPanel panel = decorator.createPanel();
+        if (dialogOptions.contains(DialogOption.DB_ENCODING)) {
+            addOptionBox(GeneratorOptions.COMPACT_ENCODING, "Compact column encoding (enums as INTEGER codes)");
+        }
 
-        myComponent = LabeledComponent.create(panel, "Fields to include in Parcelable");
+        if (dialogOptions.contains(DialogOption.COLUMN_ORDER)) {
+            addOptionBox(GeneratorOptions.COLUMN_ORDER, "Order columns by storage class, pinned first, TEXT and BLOB last");
+        }
+
+        if (dialogOptions.contains(DialogOption.PARCEL_ENCODING)) {
+            addOptionBox(GeneratorOptions.NULL_BITMASK, "Null bitmask for boxed primitive fields");
+            addOptionBox(GeneratorOptions.INCREMENTAL, "Incremental regeneration, replace only changed members");
+        }
+
+        if (dialogOptions.contains(DialogOption.ARTIFACTS)) {
+            JPanel artifactsPanel = new JPanel();
+            artifactsPanel.setLayout(new BoxLayout(artifactsPanel, BoxLayout.Y_AXIS));
+            for (Artifact artifact : Artifact.values()) {
+                JCheckBox box = new JCheckBox(artifact.getText(), true);
+                myArtifactBoxes.put(artifact, box);
+                artifactsPanel.add(box);
+            }
+            myComponent.add(LabeledComponent.create(artifactsPanel, "Artifacts to generate"), BorderLayout.EAST);
+        }
+
+        if (!myOptionBoxes.isEmpty()) {
+            JPanel optionsPanel = new JPanel();
+            optionsPanel.setLayout(new BoxLayout(optionsPanel, BoxLayout.Y_AXIS));
+            for (JCheckBox box : myOptionBoxes.values()) {
+                optionsPanel.add(box);
+            }
+            myComponent.add(optionsPanel, BorderLayout.SOUTH);
+        }
 
         init();
+        loadFields(psiClass);
+    }
+
+    /**
+     * Collects fields, including inherited ones, and their serializers and SQL types in a background read action.
+     * OK is enabled once the list is loaded.
+     */
+    private void loadFields(final PsiClass psiClass) {
+        setOKActionEnabled(false);
+        myLoadingPanel.startLoading();
+
+        ApplicationManager.getApplication().executeOnPooledThread(new Runnable() {
+            @Override
+            public void run() {
+                final Map<PsiField, FieldSpec> fieldSpecs = ApplicationManager.getApplication().runReadAction(new Computable<Map<PsiField, FieldSpec>>() {
+                    @Override
+                    public Map<PsiField, FieldSpec> compute() {
+                        final Map<PsiField, FieldSpec> result = new LinkedHashMap<PsiField, FieldSpec>();
+                        if (!psiClass.isValid()) {
+                            return result;
+                        }
+
+                        final List<PsiField> fields = PsiUtils.getModelFields(psiClass);
+                        final List<FieldSpec> specs = new CodeGenerator(psiClass, fields).getSpec().getFields();
+                        for (int i = 0; i < fields.size(); i++) {
+                            result.put(fields.get(i), specs.get(i));
+                        }
+
+                        return result;
+                    }
+                });
+
+                // Dialog is modal, the update must not wait for it to close.
+                ApplicationManager.getApplication().invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (isDisposed()) {
+                            return;
+                        }
+
+                        myFieldSpecs.putAll(fieldSpecs);
+                        for (PsiField field : fieldSpecs.keySet()) {
+                            myFields.add(field);
+                        }
+
+                        myLoadingPanel.stopLoading();
+                        setOKActionEnabled(true);
+                    }
+                }, ModalityState.any());
+            }
+        });
     }
 
     @Nullable
@@ -73,7 +297,196 @@ public class GenerateDialog extends DialogWrapper {
         return myComponent;
     }
 
+    @Override
+    protected void doOKAction() {
+        for (Map.Entry<GeneratorOptions, JCheckBox> entry : myOptionBoxes.entrySet()) {
+            entry.getKey().setEnabled(myProject, entry.getValue().isSelected());
+        }
+
+        if (myOptionBoxes.containsKey(GeneratorOptions.COLUMN_ORDER) && myClassName != null) {
+            GeneratorOptions.setPinnedColumns(myProject, myClassName, myPinnedFields);
+        }
+
+        if (myForeignKeysEditable && myClassName != null) {
+            GeneratorOptions.setForeignKeys(myProject, myClassName, myForeignKeys);
+        }
+
+        if (mySearchableEditable && myClassName != null) {
+            GeneratorOptions.setSearchableFields(myProject, myClassName, mySearchableFields);
+        }
+
+        if (mySortKeyEditable && myClassName != null) {
+            GeneratorOptions.setSortKey(myProject, myClassName, mySortKey);
+        }
+
+        super.doOKAction();
+    }
+
+    private void addOptionBox(GeneratorOptions option, String text) {
+        myOptionBoxes.put(option, new JCheckBox(text, option.isEnabled(myProject)));
+    }
+
     public List<PsiField> getSelectedFields() {
         return myFields.getItems();
     }
+
+    public EnumSet<Artifact> getSelectedArtifacts() {
+        EnumSet<Artifact> artifacts = EnumSet.noneOf(Artifact.class);
+        for (Map.Entry<Artifact, JCheckBox> entry : myArtifactBoxes.entrySet()) {
+            if (entry.getValue().isSelected()) {
+                artifacts.add(entry.getKey());
+            }
+        }
+
+        return artifacts;
+    }
+
+    /**
+     * Keyset pagination sort key if it is among the selected fields and has a primitive type, null otherwise.
+     */
+    public String getSortKey() {
+        for (PsiField field : getSelectedFields()) {
+            if (field.getName().equals(mySortKey) && field.getType() instanceof PsiPrimitiveType) {
+                return mySortKey;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns indexes marked by the user, only for fields still selected. All fields marked as composite
+     * form a single composite index, in the list order.
+     */
+    public List<IndexDef> getIndexes() {
+        List<IndexDef> indexes = new ArrayList<IndexDef>();
+        List<PsiField> composite = new ArrayList<PsiField>();
+
+        for (PsiField field : getSelectedFields()) {
+            final IndexMark mark = myIndexMarks.get(field);
+            if (mark == IndexMark.INDEX || mark == IndexMark.UNIQUE) {
+                indexes.add(new IndexDef(Arrays.asList(field), mark == IndexMark.UNIQUE));
+            } else if (mark == IndexMark.COMPOSITE) {
+                composite.add(field);
+            }
+        }
+
+        if (!composite.isEmpty()) {
+            indexes.add(new IndexDef(composite, false));
+        }
+
+        return indexes;
+    }
+
+    /**
+     * Toggles selected fields pinned early in the column order.
+     */
+    private class PinButton extends AnActionButton {
+        public PinButton() {
+            super("Toggle pinned column, placed right after the primary key", AllIcons.Actions.MoveUp);
+        }
+
+        @Override
+        public void actionPerformed(AnActionEvent e) {
+            for (Object selected : myFieldList.getSelectedValues()) {
+                final String name = ((PsiField) selected).getName();
+                if (!myPinnedFields.remove(name)) {
+                    myPinnedFields.add(name);
+                }
+            }
+
+            myFieldList.repaint();
+        }
+    }
+
+    /**
+     * Toggles selected fields stored as foreign keys, only fields of another model class with an id the class
+     * can read and write can be marked.
+     */
+    private class ForeignKeyButton extends AnActionButton {
+        public ForeignKeyButton() {
+            super("Toggle foreign key to the referenced model", AllIcons.Nodes.Class);
+        }
+
+        @Override
+        public void actionPerformed(AnActionEvent e) {
+            for (Object selected : myFieldList.getSelectedValues()) {
+                final PsiField field = (PsiField) selected;
+                final PsiClass model = PsiTypesUtil.getPsiClass(field.getType());
+                if (myForeignKeys.remove(field.getName()) || model == null || model instanceof PsiCompiledElement
+                        || model.isEnum() || model.isInterface() || !CodeGenerator.hasAccessibleId(model, myClass)) {
+                    continue;
+                }
+
+                myForeignKeys.add(field.getName());
+            }
+
+            myFieldList.repaint();
+        }
+    }
+
+    /**
+     * Toggles selected String fields indexed by the full-text search table.
+     */
+    private class SearchableButton extends AnActionButton {
+        public SearchableButton() {
+            super("Toggle full-text searchable", AllIcons.Actions.Search);
+        }
+
+        @Override
+        public void actionPerformed(AnActionEvent e) {
+            for (Object selected : myFieldList.getSelectedValues()) {
+                final PsiField field = (PsiField) selected;
+                if (!mySearchableFields.remove(field.getName()) && "java.lang.String".equals(field.getType().getCanonicalText())) {
+                    mySearchableFields.add(field.getName());
+                }
+            }
+
+            myFieldList.repaint();
+        }
+    }
+
+    /**
+     * Makes the selected field the pagination sort key, or clears it if it is the sort key already.
+     * The id is the tiebreaker and cannot be chosen, nullable fields cannot be chosen either.
+     */
+    private class SortKeyButton extends AnActionButton {
+        public SortKeyButton() {
+            super("Toggle keyset pagination sort key", AllIcons.ObjectBrowser.Sorted);
+        }
+
+        @Override
+        public void actionPerformed(AnActionEvent e) {
+            final PsiField field = (PsiField) myFieldList.getSelectedValue();
+            if (field == null || "id".equalsIgnoreCase(field.getName()) || !(field.getType() instanceof PsiPrimitiveType)) {
+                return;
+            }
+
+            mySortKey = field.getName().equals(mySortKey) ? null : field.getName();
+            myFieldList.repaint();
+        }
+    }
+
+    private class IndexMarkButton extends AnActionButton {
+        private final IndexMark mark;
+
+        public IndexMarkButton(String text, Icon icon, IndexMark mark) {
+            super(text, icon);
+            this.mark = mark;
+        }
+
+        @Override
+        public void actionPerformed(AnActionEvent e) {
+            for (Object selected : myFieldList.getSelectedValues()) {
+                final PsiField field = (PsiField) selected;
+                if (myIndexMarks.get(field) == mark) {
+                    myIndexMarks.remove(field);
+                } else {
+                    myIndexMarks.put(field, mark);
+                }
+            }
+
+            myFieldList.repaint();
+        }
+    }
 }
@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2015 Dusan Klinec Ph4r05.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.phonex.intellij.android.dbmodel;
+
+import com.intellij.notification.Notification;
+import com.intellij.notification.NotificationDisplayType;
+import com.intellij.notification.NotificationType;
+import com.intellij.notification.Notifications;
+import com.intellij.notification.NotificationsConfiguration;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+
+import java.util.Locale;
+
+/**
+ * Wall time and operation counts of code generation stages.
+ * Time is attributed exclusively, a nested stage pauses the enclosing one. Not thread safe, stages of a run
+ * are recorded by one thread at a time, e.g., background preparation followed by insertion on the event dispatch thread.
+ */
+public class GenerationMetrics {
+    private static final Logger LOG = Logger.getInstance(GenerationMetrics.class);
+    public static final String NOTIFICATION_GROUP = "DB model generator metrics";
+
+    private static boolean sGroupRegistered;
+
+    public enum Stage {
+        FIELD_ANALYSIS("field analysis"),
+        SERIALIZER_RESOLUTION("serializer resolution"),
+        /**
+         * Generator time not attributed to other stages, mostly building of the source text.
+         */
+        TEXT_BUILDING("text building"),
+        PSI_PARSE("PSI parse"),
+        TEMPLATE_INSTANTIATION("template instantiation"),
+        INSERTION("insertion"),
+        SHORTEN_REFERENCES("shortenClassReferences");
+
+        private final String text;
+
+        Stage(String text) {
+            this.text = text;
+        }
+
+        public String getText() {
+            return text;
+        }
+    }
+
+    private final long[] mNanos = new long[Stage.values().length];
+    private final int[] mCounts = new int[Stage.values().length];
+    private Stage mCurrent;
+    private long mLastNanos;
+
+    /**
+     * Starts the stage, pausing the current one.
+     *
+     * @return the paused stage, to be passed to {@link #exit(Stage)}
+     */
+    public Stage enter(Stage stage) {
+        charge(System.nanoTime());
+        final Stage previous = mCurrent;
+        mCurrent = stage;
+        mCounts[stage.ordinal()]++;
+        return previous;
+    }
+
+    /**
+     * Ends the current stage and resumes the previous one.
+     */
+    public void exit(Stage previous) {
+        charge(System.nanoTime());
+        mCurrent = previous;
+    }
+
+    private void charge(long now) {
+        if (mCurrent != null) {
+            mNanos[mCurrent.ordinal()] += now - mLastNanos;
+        }
+
+        mLastNanos = now;
+    }
+
+    public long getMillis(Stage stage) {
+        return mNanos[stage.ordinal()] / 1000000L;
+    }
+
+    public int getCount(Stage stage) {
+        return mCounts[stage.ordinal()];
+    }
+
+    public long getTotalMillis() {
+        long total = 0;
+        for (long nanos : mNanos) {
+            total += nanos;
+        }
+
+        return total / 1000000L;
+    }
+
+    /**
+     * Human readable summary, one stage per line.
+     */
+    public String getSummary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("total ").append(getTotalMillis()).append(" ms");
+        for (Stage stage : Stage.values()) {
+            sb.append('\n').append(stage.getText()).append(": ")
+                    .append(getMillis(stage)).append(" ms, ")
+                    .append(getCount(stage)).append("x");
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Machine readable key=value line, stable across plugin versions.
+     */
+    public String getLogLine(String run) {
+        StringBuilder sb = new StringBuilder("dbmodel-metrics run=\"").append(run).append('"');
+        sb.append(" total_ms=").append(getTotalMillis());
+        for (Stage stage : Stage.values()) {
+            final String key = stage.name().toLowerCase(Locale.ROOT);
+            sb.append(' ').append(key).append("_ms=").append(getMillis(stage));
+            sb.append(' ').append(key).append("_count=").append(getCount(stage));
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Writes the log line to the IDE log and the summary to the event log.
+     */
+    public void report(Project project, String run) {
+        LOG.info(getLogLine(run));
+
+        if (!sGroupRegistered) {
+            // Summaries go to the event log only, no balloons.
+            NotificationsConfiguration.getNotificationsConfiguration().register(NOTIFICATION_GROUP, NotificationDisplayType.NONE);
+            sGroupRegistered = true;
+        }
+
+        Notifications.Bus.notify(new Notification(NOTIFICATION_GROUP, "Generated " + run,
+                getSummary().replace("\n", "<br/>"), NotificationType.INFORMATION), project);
+    }
+}
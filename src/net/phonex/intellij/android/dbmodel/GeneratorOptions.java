@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2015 Dusan Klinec Ph4r05.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.phonex.intellij.android.dbmodel;
+
+import com.intellij.ide.util.PropertiesComponent;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.text.StringUtil;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Generator options persisted per project, so all generated members of a model stay consistent
+ * regardless of which action generated them.
+ */
+public enum GeneratorOptions {
+    /**
+     * Enums stored as INTEGER codes from a generated mapping table instead of TEXT.
+     */
+    COMPACT_ENCODING,
+
+    /**
+     * Parcelable nullity of boxed primitives stored in a single null bitmask, values written raw.
+     */
+    NULL_BITMASK,
+
+    /**
+     * Parcelable regeneration replaces only members and statements that differ from the generated ones.
+     */
+    INCREMENTAL,
+
+    /**
+     * DB columns ordered by storage class: primary key, pinned columns, numeric, TEXT and BLOB last.
+     */
+    COLUMN_ORDER;
+
+    private static final String PREFIX = "net.phonex.intellij.android.dbmodel.";
+    private static final String PINNED_PREFIX = PREFIX + "pinned.";
+    private static final String FOREIGN_KEY_PREFIX = PREFIX + "foreignKeys.";
+    private static final String SEARCHABLE_PREFIX = PREFIX + "searchable.";
+    private static final String SORT_KEY_PREFIX = PREFIX + "sortKey.";
+
+    public boolean isEnabled(Project project) {
+        return project != null && PropertiesComponent.getInstance(project).isTrueValue(PREFIX + name());
+    }
+
+    public void setEnabled(Project project, boolean enabled) {
+        PropertiesComponent.getInstance(project).setValue(PREFIX + name(), String.valueOf(enabled));
+    }
+
+    /**
+     * Names of fields pinned early in the {@link #COLUMN_ORDER} of the class.
+     */
+    public static Set<String> getPinnedColumns(Project project, String className) {
+        return getFieldNames(project, PINNED_PREFIX + className);
+    }
+
+    public static void setPinnedColumns(Project project, String className, Collection<String> pinned) {
+        PropertiesComponent.getInstance(project).setValue(PINNED_PREFIX + className, StringUtil.join(pinned, ","));
+    }
+
+    /**
+     * Names of fields of the class stored as foreign keys to the referenced models. Persisted, as all DB
+     * artifacts have to agree on the column representation.
+     */
+    public static Set<String> getForeignKeys(Project project, String className) {
+        return getFieldNames(project, FOREIGN_KEY_PREFIX + className);
+    }
+
+    public static void setForeignKeys(Project project, String className, Collection<String> foreignKeys) {
+        PropertiesComponent.getInstance(project).setValue(FOREIGN_KEY_PREFIX + className, StringUtil.join(foreignKeys, ","));
+    }
+
+    /**
+     * Names of String fields of the class indexed by the full-text search table.
+     */
+    public static Set<String> getSearchableFields(Project project, String className) {
+        return getFieldNames(project, SEARCHABLE_PREFIX + className);
+    }
+
+    public static void setSearchableFields(Project project, String className, Collection<String> searchable) {
+        PropertiesComponent.getInstance(project).setValue(SEARCHABLE_PREFIX + className, StringUtil.join(searchable, ","));
+    }
+
+    /**
+     * Name of the field of the class the keyset pagination is sorted by, null if not chosen.
+     */
+    public static String getSortKey(Project project, String className) {
+        final String value = project == null ? null : PropertiesComponent.getInstance(project).getValue(SORT_KEY_PREFIX + className);
+        return StringUtil.isEmpty(value) ? null : value;
+    }
+
+    public static void setSortKey(Project project, String className, String sortKey) {
+        PropertiesComponent.getInstance(project).setValue(SORT_KEY_PREFIX + className, sortKey == null ? "" : sortKey);
+    }
+
+    private static Set<String> getFieldNames(Project project, String key) {
+        final String value = project == null ? null : PropertiesComponent.getInstance(project).getValue(key);
+        final Set<String> names = new LinkedHashSet<String>();
+        if (!StringUtil.isEmpty(value)) {
+            names.addAll(StringUtil.split(value, ","));
+        }
+
+        return names;
+    }
+}
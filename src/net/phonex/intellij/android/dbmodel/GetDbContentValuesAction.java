@@ -30,7 +30,9 @@ public class GetDbContentValuesAction extends AnAction {
     public void actionPerformed(AnActionEvent e) {
         PsiClass psiClass = PsiUtils.getPsiClassFromContext(e);
 
-        GenerateDialog dlg = new GenerateDialog(psiClass);
+        GenerateDialog dlg = new GenerateDialog(psiClass, GenerateDialog.DialogOption.DB_ENCODING,
+                GenerateDialog.DialogOption.COLUMN_ORDER,
+                GenerateDialog.DialogOption.FOREIGN_KEYS);
         dlg.show();
 
         if (dlg.isOK()) {
@@ -42,7 +44,9 @@ public class GetDbContentValuesAction extends AnAction {
         new WriteCommandAction.Simple(psiClass.getProject(), psiClass.getContainingFile()) {
             @Override
             protected void run() throws Throwable {
-                new CodeGenerator(psiClass, fields).generateGetDbContentValues();
+                CodeGenerator generator = new CodeGenerator(psiClass, fields);
+                generator.generateArtifact(Artifact.DB_CONTENT_VALUES);
+                generator.getMetrics().report(psiClass.getProject(), Artifact.DB_CONTENT_VALUES.getText() + " for " + psiClass.getName());
             }
         }.execute();
     }
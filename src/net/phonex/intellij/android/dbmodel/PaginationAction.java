@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2015 Dusan Klinec Ph4r05.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.phonex.intellij.android.dbmodel;
+
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiField;
+import net.phonex.intellij.android.dbmodel.util.PsiUtils;
+
+import java.util.List;
+
+/**
+ * Generates keyset pagination queries ordered by the chosen sort key, with the id as tiebreaker.
+ */
+public class PaginationAction extends AnAction {
+    private static final String TITLE = "Keyset Pagination";
+
+    @Override
+    public void actionPerformed(AnActionEvent e) {
+        PsiClass psiClass = PsiUtils.getPsiClassFromContext(e);
+
+        GenerateDialog dlg = new GenerateDialog(psiClass, GenerateDialog.DialogOption.SORT_KEY,
+                GenerateDialog.DialogOption.COLUMN_ORDER, GenerateDialog.DialogOption.FOREIGN_KEYS);
+        dlg.show();
+
+        if (!dlg.isOK()) {
+            return;
+        }
+
+        if (dlg.getSortKey() == null || !hasId(dlg.getSelectedFields())) {
+            Messages.showErrorDialog(psiClass.getProject(), "Select the id field and a primitive field marked as the sort key.", TITLE);
+            return;
+        }
+
+        generatePagination(psiClass, dlg.getSelectedFields());
+    }
+
+    private static boolean hasId(List<PsiField> fields) {
+        for (PsiField field : fields) {
+            if ("id".equalsIgnoreCase(field.getName())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void generatePagination(final PsiClass psiClass, final List<PsiField> fields) {
+        new WriteCommandAction.Simple(psiClass.getProject(), psiClass.getContainingFile()) {
+            @Override
+            protected void run() throws Throwable {
+                CodeGenerator generator = new CodeGenerator(psiClass, fields);
+                generator.generateArtifact(Artifact.PAGINATION);
+                generator.getMetrics().report(psiClass.getProject(), Artifact.PAGINATION.getText() + " for " + psiClass.getName());
+            }
+        }.execute();
+    }
+
+    @Override
+    public void update(AnActionEvent e) {
+        PsiClass psiClass = PsiUtils.getPsiClassFromContext(e);
+        e.getPresentation().setEnabled(psiClass != null && !psiClass.isEnum() && !psiClass.isInterface());
+    }
+}
@@ -30,7 +30,7 @@ public class ParcelableAction extends AnAction {
     public void actionPerformed(AnActionEvent e) {
         PsiClass psiClass = PsiUtils.getPsiClassFromContext(e);
 
-        GenerateDialog dlg = new GenerateDialog(psiClass);
+        GenerateDialog dlg = new GenerateDialog(psiClass, GenerateDialog.DialogOption.PARCEL_ENCODING);
         dlg.show();
 
         if (dlg.isOK()) {
@@ -39,10 +39,12 @@ public class ParcelableAction extends AnAction {
     }
 
     private void generateParcelable(final PsiClass psiClass, final List<PsiField> fields) {
-        new WriteCommandAction.Simple(psiClass.getProject(), psiClass.getContainingFile()) {
+        new WriteCommandAction.Simple(psiClass.getProject(), CodeGenerator.getAffectedFiles(psiClass, fields)) {
             @Override
             protected void run() throws Throwable {
-                new CodeGenerator(psiClass, fields).generate();
+                CodeGenerator generator = new CodeGenerator(psiClass, fields);
+                generator.generateArtifact(Artifact.PARCELABLE);
+                generator.getMetrics().report(psiClass.getProject(), Artifact.PARCELABLE.getText() + " for " + psiClass.getName());
             }
         }.execute();
     }
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2015 Dusan Klinec Ph4r05.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.phonex.intellij.android.dbmodel;
+
+import com.intellij.psi.*;
+import com.intellij.psi.util.PsiTreeUtil;
+import org.apache.xmlbeans.impl.common.NameUtil;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Cache of parsed per-field statement shapes. A shape is the statement text generated for a placeholder
+ * field of the same type; it is parsed once and then cloned for every field of that shape, with only
+ * the placeholder identifiers renamed.
+ *
+ * Serializers derive local names as "tmp" + capitalized field name, which the placeholder survives
+ * unchanged. Any other use of the name is detected by comparing the substituted shape text with
+ * the real text, such fields are parsed from their own text.
+ */
+class StatementTemplates {
+    static final String PLACEHOLDER = "__f__";
+
+    private final PsiClass mContext;
+    private final PsiElementFactory mElementFactory;
+    private final GenerationMetrics mMetrics;
+    private final Map<String, PsiField> mPlaceholders = new HashMap<String, PsiField>();
+    private final Map<String, PsiStatement[]> mShapes = new HashMap<String, PsiStatement[]>();
+    private final Map<String, PsiIdentifier> mIdentifiers = new HashMap<String, PsiIdentifier>();
+
+    StatementTemplates(PsiClass context, GenerationMetrics metrics) {
+        mContext = context;
+        mElementFactory = JavaPsiFacade.getElementFactory(context.getProject());
+        mMetrics = metrics;
+    }
+
+    /**
+     * Returns a non-physical field named {@link #PLACEHOLDER} of the given type, to generate the shape text with.
+     */
+    PsiField getPlaceholder(PsiType type) {
+        final String key = type.getCanonicalText();
+        PsiField placeholder = mPlaceholders.get(key);
+        if (placeholder == null) {
+            placeholder = mElementFactory.createField(PLACEHOLDER, type);
+            mPlaceholders.put(key, placeholder);
+        }
+
+        return placeholder;
+    }
+
+    /**
+     * Returns statements for the field, cloned from the cached shape if it matches the field text.
+     *
+     * @param shapeText statement text generated for the placeholder field
+     * @param fieldName name of the real field
+     * @param text statement text generated for the real field, parsed if the shape does not apply
+     */
+    PsiStatement[] instantiate(String shapeText, String fieldName, String text) {
+        final PsiStatement[] shape = getShape(shapeText);
+        if (shape == null || !substitute(shapeText, fieldName).equals(text)) {
+            return parse(text);
+        }
+
+        final GenerationMetrics.Stage previous = mMetrics.enter(GenerationMetrics.Stage.TEMPLATE_INSTANTIATION);
+        try {
+            final PsiStatement[] statements = new PsiStatement[shape.length];
+            for (int i = 0; i < shape.length; i++) {
+                statements[i] = (PsiStatement) shape[i].copy();
+                for (PsiIdentifier identifier : PsiTreeUtil.collectElementsOfType(statements[i], PsiIdentifier.class)) {
+                    final String name = identifier.getText();
+                    if (name.contains(PLACEHOLDER)) {
+                        identifier.replace(getIdentifier(substitute(name, fieldName)));
+                    }
+                }
+            }
+
+            return statements;
+        } finally {
+            mMetrics.exit(previous);
+        }
+    }
+
+    /**
+     * Parsed shape, or null if the placeholder occurs outside of identifiers and the shape cannot be used.
+     */
+    private PsiStatement[] getShape(String shapeText) {
+        if (mShapes.containsKey(shapeText)) {
+            return mShapes.get(shapeText);
+        }
+
+        PsiStatement[] shape = parse(shapeText);
+        int occurrences = 0;
+        for (PsiStatement statement : shape) {
+            final Collection<PsiIdentifier> identifiers = PsiTreeUtil.collectElementsOfType(statement, PsiIdentifier.class);
+            for (PsiIdentifier identifier : identifiers) {
+                occurrences += countPlaceholders(identifier.getText());
+            }
+        }
+
+        if (occurrences != countPlaceholders(shapeText)) {
+            shape = null;
+        }
+
+        mShapes.put(shapeText, shape);
+        return shape;
+    }
+
+    private PsiStatement[] parse(String text) {
+        final GenerationMetrics.Stage previous = mMetrics.enter(GenerationMetrics.Stage.PSI_PARSE);
+        try {
+            return mElementFactory.createCodeBlockFromText("{" + text + "}", mContext).getStatements();
+        } finally {
+            mMetrics.exit(previous);
+        }
+    }
+
+    private PsiIdentifier getIdentifier(String name) {
+        PsiIdentifier identifier = mIdentifiers.get(name);
+        if (identifier == null) {
+            identifier = mElementFactory.createIdentifier(name);
+            mIdentifiers.put(name, identifier);
+        }
+
+        return identifier;
+    }
+
+    private static String substitute(String text, String fieldName) {
+        return text.replace("tmp" + PLACEHOLDER, "tmp" + NameUtil.upperCaseFirstLetter(fieldName))
+                .replace(PLACEHOLDER, fieldName);
+    }
+
+    private static int countPlaceholders(String text) {
+        int count = 0;
+        for (int idx = text.indexOf(PLACEHOLDER); idx >= 0; idx = text.indexOf(PLACEHOLDER, idx + PLACEHOLDER.length())) {
+            count++;
+        }
+
+        return count;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2015 Dusan Klinec Ph4r05.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.phonex.intellij.android.dbmodel;
+
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.ui.InputValidator;
+import com.intellij.openapi.ui.Messages;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiField;
+import net.phonex.intellij.android.dbmodel.util.IndexDef;
+import net.phonex.intellij.android.dbmodel.util.PsiUtils;
+
+import java.util.List;
+
+/**
+ * Generates UPGRADE_TO_VN statements from the difference between the existing CREATE_TABLE and selected fields.
+ */
+public class UpgradeTableAction extends AnAction {
+    private static final String TITLE = "Table Upgrade";
+    private static final String UPGRADE_PREFIX = "UPGRADE_TO_V";
+
+    @Override
+    public void actionPerformed(AnActionEvent e) {
+        PsiClass psiClass = PsiUtils.getPsiClassFromContext(e);
+
+        if (CodeGenerator.getTableSchema(psiClass) == null) {
+            Messages.showErrorDialog(psiClass.getProject(),
+                    "No CREATE_TABLE constant to upgrade from, generate createTable() first.", TITLE);
+            return;
+        }
+
+        GenerateDialog dlg = new GenerateDialog(psiClass, GenerateDialog.DialogOption.INDEXES, GenerateDialog.DialogOption.DB_ENCODING,
+                GenerateDialog.DialogOption.COLUMN_ORDER,
+                GenerateDialog.DialogOption.FOREIGN_KEYS);
+        dlg.show();
+
+        if (!dlg.isOK()) {
+            return;
+        }
+
+        final String version = Messages.showInputDialog(psiClass.getProject(), "Database version to upgrade to:", TITLE,
+                Messages.getQuestionIcon(), String.valueOf(getNextVersion(psiClass)), new InputValidator() {
+                    @Override
+                    public boolean checkInput(String inputString) {
+                        return inputString.matches("\\d+") && Integer.parseInt(inputString) > 1;
+                    }
+
+                    @Override
+                    public boolean canClose(String inputString) {
+                        return checkInput(inputString);
+                    }
+                });
+
+        if (version != null) {
+            generateUpgrade(psiClass, dlg.getSelectedFields(), dlg.getIndexes(), Integer.parseInt(version));
+        }
+    }
+
+    /**
+     * Version following the highest UPGRADE_TO_VN constant in the class, 2 if there is none.
+     */
+    private static int getNextVersion(PsiClass psiClass) {
+        int version = 1;
+        for (PsiField field : psiClass.getFields()) {
+            final String name = field.getName();
+            if (name.startsWith(UPGRADE_PREFIX) && name.substring(UPGRADE_PREFIX.length()).matches("\\d+")) {
+                version = Math.max(version, Integer.parseInt(name.substring(UPGRADE_PREFIX.length())));
+            }
+        }
+
+        return version + 1;
+    }
+
+    private void generateUpgrade(final PsiClass psiClass, final List<PsiField> fields, final List<IndexDef> indexes, final int version) {
+        new WriteCommandAction.Simple(psiClass.getProject(), psiClass.getContainingFile()) {
+            @Override
+            protected void run() throws Throwable {
+                CodeGenerator generator = new CodeGenerator(psiClass, fields).setIndexes(indexes);
+                generator.generateUpgrade(version);
+                generator.getMetrics().report(psiClass.getProject(), UPGRADE_PREFIX + version + " for " + psiClass.getName());
+            }
+        }.execute();
+    }
+
+    @Override
+    public void update(AnActionEvent e) {
+        PsiClass psiClass = PsiUtils.getPsiClassFromContext(e);
+        e.getPresentation().setEnabled(psiClass != null && !psiClass.isEnum() && !psiClass.isInterface());
+    }
+}
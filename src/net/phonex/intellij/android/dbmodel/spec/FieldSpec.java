@@ -0,0 +1,260 @@
+/*
+ * Copyright (C) 2015 Dusan Klinec Ph4r05.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.phonex.intellij.android.dbmodel.spec;
+
+import com.google.common.base.CaseFormat;
+
+/**
+ * Immutable, PSI-free description of a model field, see {@link ModelSpec}.
+ */
+public final class FieldSpec {
+    private final String name;
+    private final String type;
+    private final boolean primitive;
+    private final String sqlType;
+    private final String serializerKind;
+    private final String parcelWrite;
+    private final String parcelRead;
+    private final String nullMaskWrite;
+    private final String enumName;
+    private final String enumSimpleName;
+    private final ForeignKeySpec foreignKey;
+    private final boolean searchable;
+    private final boolean sortKey;
+
+    private FieldSpec(Builder builder) {
+        this.name = builder.name;
+        this.type = builder.type;
+        this.primitive = builder.primitive;
+        this.sqlType = builder.sqlType;
+        this.serializerKind = builder.serializerKind;
+        this.parcelWrite = builder.parcelWrite;
+        this.parcelRead = builder.parcelRead;
+        this.nullMaskWrite = builder.nullMaskWrite;
+        this.enumName = builder.enumName;
+        this.enumSimpleName = builder.enumSimpleName;
+        this.foreignKey = builder.foreignKey;
+        this.searchable = builder.searchable;
+        this.sortKey = builder.sortKey;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Canonical text of the field type.
+     */
+    public String getType() {
+        return type;
+    }
+
+    public boolean isPrimitive() {
+        return primitive;
+    }
+
+    public String getSqlType() {
+        return sqlType;
+    }
+
+    /**
+     * Simple class name of the Parcel serializer resolved for the field.
+     */
+    public String getSerializerKind() {
+        return serializerKind;
+    }
+
+    /**
+     * Statements writing the field to the "dest" parcel.
+     */
+    public String getParcelWrite() {
+        return parcelWrite;
+    }
+
+    /**
+     * Statements reading the field from the "in" parcel.
+     */
+    public String getParcelRead() {
+        return parcelRead;
+    }
+
+    /**
+     * Statement setting the null bit of the field, null if the field is not covered by the null mask.
+     */
+    public String getNullMaskWrite() {
+        return nullMaskWrite;
+    }
+
+    public boolean isNullMasked() {
+        return nullMaskWrite != null;
+    }
+
+    /**
+     * Qualified name of the enum stored as INTEGER code, null if the field is not stored as enum code.
+     */
+    public String getEnumName() {
+        return enumName;
+    }
+
+    /**
+     * Referenced model if the field is stored as a foreign key, null otherwise.
+     */
+    public ForeignKeySpec getForeignKey() {
+        return foreignKey;
+    }
+
+    /**
+     * True if the column is indexed by the full-text search table.
+     */
+    public boolean isSearchable() {
+        return searchable;
+    }
+
+    /**
+     * True if the column is the sort key of keyset pagination, with the primary key as tiebreaker.
+     */
+    public boolean isSortKey() {
+        return sortKey;
+    }
+
+    /**
+     * Name of the method creating the referenced model holding only the id read from the FK column.
+     */
+    public String getReferenceFactoryName() {
+        return "create" + Character.toUpperCase(name.charAt(0)) + name.substring(1) + "Reference";
+    }
+
+    public String getEnumTableName() {
+        return CaseFormat.UPPER_CAMEL.to(CaseFormat.UPPER_UNDERSCORE, enumSimpleName) + "_CODES";
+    }
+
+    public String getEnumEncoderName() {
+        return "encode" + enumSimpleName;
+    }
+
+    public String getEnumDecoderName() {
+        return "decode" + enumSimpleName;
+    }
+
+    /**
+     * Column name, the value of the FIELD_* constant.
+     */
+    public String getColumnName() {
+        return name;
+    }
+
+    /**
+     * Field "id" is the INTEGER autoincrement primary key.
+     */
+    public boolean isPrimaryKey() {
+        return "FIELD_ID".equalsIgnoreCase(getColumnConstant());
+    }
+
+    /**
+     * Name of the FIELD_* constant holding the column name.
+     */
+    public String getColumnConstant() {
+        return "FIELD_" + toConstantCase(name);
+    }
+
+    public String getColumnIndexConstant() {
+        return "COL_IDX_" + toConstantCase(name);
+    }
+
+    public String getDirtyBitConstant() {
+        return "DIRTY_" + toConstantCase(name);
+    }
+
+    public String getSetterName() {
+        return "set" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private static String toConstantCase(String varName) {
+        return CaseFormat.UPPER_CAMEL.to(CaseFormat.UPPER_UNDERSCORE, varName);
+    }
+
+    public static Builder builder(String name, String type) {
+        return new Builder(name, type);
+    }
+
+    public static final class Builder {
+        private final String name;
+        private final String type;
+        private boolean primitive;
+        private String sqlType = "TEXT";
+        private String serializerKind;
+        private String parcelWrite = "";
+        private String parcelRead = "";
+        private String nullMaskWrite;
+        private String enumName;
+        private String enumSimpleName;
+        private ForeignKeySpec foreignKey;
+        private boolean searchable;
+        private boolean sortKey;
+
+        private Builder(String name, String type) {
+            this.name = name;
+            this.type = type;
+        }
+
+        public Builder primitive(boolean primitive) {
+            this.primitive = primitive;
+            return this;
+        }
+
+        public Builder sqlType(String sqlType) {
+            this.sqlType = sqlType;
+            return this;
+        }
+
+        public Builder serializer(String kind, String parcelWrite, String parcelRead) {
+            this.serializerKind = kind;
+            this.parcelWrite = parcelWrite;
+            this.parcelRead = parcelRead;
+            return this;
+        }
+
+        public Builder nullMaskWrite(String nullMaskWrite) {
+            this.nullMaskWrite = nullMaskWrite;
+            return this;
+        }
+
+        public Builder enumCode(String enumName, String enumSimpleName) {
+            this.enumName = enumName;
+            this.enumSimpleName = enumSimpleName;
+            return this;
+        }
+
+        public Builder foreignKey(ForeignKeySpec foreignKey) {
+            this.foreignKey = foreignKey;
+            return this;
+        }
+
+        public Builder searchable(boolean searchable) {
+            this.searchable = searchable;
+            return this;
+        }
+
+        public Builder sortKey(boolean sortKey) {
+            this.sortKey = sortKey;
+            return this;
+        }
+
+        public FieldSpec build() {
+            return new FieldSpec(this);
+        }
+    }
+}
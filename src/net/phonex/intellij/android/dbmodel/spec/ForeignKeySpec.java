@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2015 Dusan Klinec Ph4r05.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.phonex.intellij.android.dbmodel.spec;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reference of a field to another generated model, stored as INTEGER column holding the id of the referenced row.
+ * The referenced model is expected to have TABLE, FIELD_* constants and the ColumnMap reader.
+ */
+public final class ForeignKeySpec {
+    private final String modelName;
+    private final String tableName;
+    private final String idColumnName;
+    private final String idFieldName;
+    private final String idGetter;
+    private final String idSetter;
+    private final List<String> columnConstants;
+
+    /**
+     * @param modelName qualified name of the referenced model
+     * @param tableName value of the referenced TABLE constant
+     * @param idColumnName value of the referenced FIELD_ID constant
+     * @param idFieldName name of the referenced id field
+     * @param idGetter getter of the id, null if the field is accessed directly
+     * @param idSetter setter of the id, null if the field is accessed directly
+     * @param columnConstants FIELD_* constants of the referenced model
+     */
+    public ForeignKeySpec(String modelName, String tableName, String idColumnName, String idFieldName,
+                          String idGetter, String idSetter, List<String> columnConstants) {
+        this.modelName = modelName;
+        this.tableName = tableName;
+        this.idColumnName = idColumnName;
+        this.idFieldName = idFieldName;
+        this.idGetter = idGetter;
+        this.idSetter = idSetter;
+        this.columnConstants = Collections.unmodifiableList(new ArrayList<String>(columnConstants));
+    }
+
+    public String getModelName() {
+        return modelName;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public String getIdColumnName() {
+        return idColumnName;
+    }
+
+    /**
+     * Name of the id field, also the member of the referenced ColumnMap.
+     */
+    public String getIdFieldName() {
+        return idFieldName;
+    }
+
+    public List<String> getColumnConstants() {
+        return columnConstants;
+    }
+
+    /**
+     * Column definition with the REFERENCES clause.
+     */
+    public String getSqlType() {
+        return "INTEGER REFERENCES " + tableName + "(" + idColumnName + ")";
+    }
+
+    public String getIdReadExpression(String target) {
+        return target + "." + (idGetter != null ? idGetter + "()" : idFieldName);
+    }
+
+    public String getIdWriteStatement(String target, String value) {
+        return target + "." + (idSetter != null ? idSetter + "(" + value + ")" : idFieldName + " = " + value) + ";";
+    }
+}
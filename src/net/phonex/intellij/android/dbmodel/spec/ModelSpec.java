@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2015 Dusan Klinec Ph4r05.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.phonex.intellij.android.dbmodel.spec;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable, PSI-free description of a model class. Extracted once in a read action, all text generation
+ * by {@link ModelTextGenerator} then runs from it on any thread.
+ */
+public final class ModelSpec {
+    private final String className;
+    private final String qualifiedName;
+    private final List<FieldSpec> fields;
+    private final List<FieldSpec> columns;
+    private final List<IndexSpec> indexes;
+
+    public ModelSpec(String className, String qualifiedName, List<FieldSpec> fields, List<IndexSpec> indexes) {
+        this(className, qualifiedName, fields, fields, indexes);
+    }
+
+    /**
+     * @param columns the same fields in DB column order, see {@link #orderByStorageClass(List, Collection)}
+     */
+    public ModelSpec(String className, String qualifiedName, List<FieldSpec> fields, List<FieldSpec> columns, List<IndexSpec> indexes) {
+        this.className = className;
+        this.qualifiedName = qualifiedName;
+        this.fields = Collections.unmodifiableList(new ArrayList<FieldSpec>(fields));
+        this.columns = Collections.unmodifiableList(new ArrayList<FieldSpec>(columns));
+        this.indexes = Collections.unmodifiableList(new ArrayList<IndexSpec>(indexes));
+    }
+
+    public String getClassName() {
+        return className;
+    }
+
+    public String getQualifiedName() {
+        return qualifiedName;
+    }
+
+    public List<FieldSpec> getFields() {
+        return fields;
+    }
+
+    /**
+     * Fields in DB column order, used by table, projection, cursor and ContentValues generators.
+     * Parcel code keeps the field order of {@link #getFields()}.
+     */
+    public List<FieldSpec> getColumns() {
+        return columns;
+    }
+
+    public List<IndexSpec> getIndexes() {
+        return indexes;
+    }
+
+    /**
+     * Primary key field "id", null if not selected.
+     */
+    public FieldSpec getPrimaryKey() {
+        for (FieldSpec field : fields) {
+            if (field.isPrimaryKey()) {
+                return field;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Sort key of keyset pagination, null if not chosen.
+     */
+    public FieldSpec getSortKey() {
+        for (FieldSpec field : fields) {
+            if (field.isSortKey()) {
+                return field;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Number of fields covered by the null mask, a long mask is used above 32.
+     */
+    public int getNullMaskedCount() {
+        int count = 0;
+        for (FieldSpec field : fields) {
+            if (field.isNullMasked()) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Orders columns so that SQLite, decoding records sequentially, reaches frequently read and small values
+     * before large ones: the primary key, pinned fields, numeric columns, TEXT and BLOB. Order within each
+     * group is kept.
+     *
+     * @param pinned names of fields to place right after the primary key
+     */
+    public static List<FieldSpec> orderByStorageClass(List<FieldSpec> fields, final Collection<String> pinned) {
+        final List<FieldSpec> columns = new ArrayList<FieldSpec>(fields);
+        Collections.sort(columns, new Comparator<FieldSpec>() {
+            @Override
+            public int compare(FieldSpec a, FieldSpec b) {
+                return getStorageRank(a, pinned) - getStorageRank(b, pinned);
+            }
+        });
+
+        return columns;
+    }
+
+    private static int getStorageRank(FieldSpec field, Collection<String> pinned) {
+        if (field.isPrimaryKey()) {
+            return 0;
+        }
+
+        if (pinned.contains(field.getName())) {
+            return 1;
+        }
+
+        final String sqlType = field.getSqlType().toUpperCase();
+        if (sqlType.startsWith("BLOB")) {
+            return 4;
+        }
+
+        return sqlType.startsWith("INTEGER") || sqlType.startsWith("REAL") || sqlType.startsWith("NUMERIC") ? 2 : 3;
+    }
+
+    /**
+     * Index over one or more fields, see {@link net.phonex.intellij.android.dbmodel.util.IndexDef}.
+     */
+    public static final class IndexSpec {
+        private final List<FieldSpec> fields;
+        private final boolean unique;
+
+        public IndexSpec(List<FieldSpec> fields, boolean unique) {
+            this.fields = Collections.unmodifiableList(new ArrayList<FieldSpec>(fields));
+            this.unique = unique;
+        }
+
+        public List<FieldSpec> getFields() {
+            return fields;
+        }
+
+        public boolean isUnique() {
+            return unique;
+        }
+    }
+}
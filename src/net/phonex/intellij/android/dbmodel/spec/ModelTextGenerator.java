@@ -0,0 +1,975 @@
+/*
+ * Copyright (C) 2013 Michał Charmas (http://blog.charmas.pl)
+ * Copyright (C) 2015 Dusan Klinec Ph4r05.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.phonex.intellij.android.dbmodel.spec;
+
+import com.google.common.base.CaseFormat;
+import com.google.common.base.Joiner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Builds source text of generated members from a {@link ModelSpec}. Does not touch PSI, so it is thread safe
+ * and usable without the IDE. Placement of the members into the class is done by the CodeGenerator.
+ */
+public class ModelTextGenerator {
+    public static final String COLUMN_MAP_NAME = "ColumnMap";
+    public static final String JOINED_COLUMN_MAP_NAME = "JoinedColumnMap";
+    public static final String JOIN_TABLES_NAME = "JOIN_TABLES";
+    public static final String JOIN_PROJECTION_NAME = "JOIN_PROJECTION";
+    public static final String FTS_TABLE_NAME = "FTS_TABLE";
+    public static final String CREATE_FTS_NAME = "CREATE_FTS";
+    public static final String SEARCH_RANK_NAME = "searchRank";
+    public static final String PAGE_FIRST_SQL_NAME = "PAGE_FIRST_SQL";
+    public static final String PAGE_NEXT_SQL_NAME = "PAGE_NEXT_SQL";
+    public static final String CREATE_PAGE_INDEX_NAME = "CREATE_PAGE_INDEX";
+    public static final String DIRTY_MASK_NAME = "dirtyMask";
+    public static final String NULL_MASK_NAME = "nullMask";
+    public static final String WRITE_TO_PARCEL_HEADER = "@Override public void writeToParcel(android.os.Parcel dest, int flags) {";
+
+    private final ModelSpec spec;
+    private final List<FieldSpec> fields;
+    private final List<FieldSpec> columns;
+
+    public ModelTextGenerator(ModelSpec spec) {
+        this.spec = spec;
+        this.fields = spec.getFields();
+        this.columns = spec.getColumns();
+    }
+
+    public ModelSpec getSpec() {
+        return spec;
+    }
+
+    public String getConstructorHeader() {
+        // Create the Parcelable-required constructor
+        return "private " + spec.getClassName() + "(android.os.Parcel in) {";
+    }
+
+    public String generateConstructor() {
+        return getConstructorHeader() + generateReadFields() + "}";
+    }
+
+    public String generateWriteToParcel() {
+        return WRITE_TO_PARCEL_HEADER + generateWriteFields() + "}";
+    }
+
+    /**
+     * Reads all fields from the "in" parcel.
+     */
+    public String generateReadFields() {
+        StringBuilder sb = new StringBuilder(generateReadMask());
+
+        // Creates all of the deserialization methods for the given fields
+        for (FieldSpec field : fields) {
+            sb.append(field.getParcelRead());
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Writes all fields to the "dest" parcel.
+     */
+    public String generateWriteFields() {
+        StringBuilder sb = new StringBuilder(generateWriteMask());
+
+        for (FieldSpec field : fields) {
+            sb.append(field.getParcelWrite());
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Null bitmask of boxed fields goes first.
+     */
+    public String generateReadMask() {
+        final int masked = spec.getNullMaskedCount();
+        if (masked == 0) {
+            return "";
+        }
+
+        final boolean wideMask = masked > 32;
+        return (wideMask ? "long " : "int ") + NULL_MASK_NAME + " = in.read" + (wideMask ? "Long" : "Int") + "();";
+    }
+
+    /**
+     * Null bitmask of boxed fields goes first.
+     */
+    public String generateWriteMask() {
+        final int masked = spec.getNullMaskedCount();
+        if (masked == 0) {
+            return "";
+        }
+
+        final boolean wideMask = masked > 32;
+        StringBuilder sb = new StringBuilder();
+        sb.append(wideMask ? "long " : "int ").append(NULL_MASK_NAME).append(" = 0;");
+        for (FieldSpec field : fields) {
+            if (field.isNullMasked()) {
+                sb.append(field.getNullMaskWrite());
+            }
+        }
+        sb.append("dest.write").append(wideMask ? "Long" : "Int").append("(").append(NULL_MASK_NAME).append(");");
+
+        return sb.toString();
+    }
+
+    public String generateFullProjection() {
+        StringBuilder sb = new StringBuilder("public static final String[] FULL_PROJECTION = new String[] {\n");
+        final int nmFields = columns.size();
+        int cnFields = 0;
+
+        for (FieldSpec field : columns) {
+            String comma = cnFields + 1 == nmFields ? "" : ",";
+
+            sb.append(field.getColumnConstant()).append(comma);
+            cnFields += 1;
+        }
+        sb.append("\n};\n");
+        return sb.toString();
+    }
+
+    public String generateCreateTable() {
+        StringBuilder sb = new StringBuilder("public static final String CREATE_TABLE = \"CREATE TABLE IF NOT EXISTS \"\n");
+        sb.append("+ TABLE\n");
+        sb.append("+ \" (\"\n");
+
+        // Compute longest field name.
+        int maxFieldLen = 0;
+        for (FieldSpec field : columns) {
+            final int fLen = field.getColumnConstant().length();
+            if (fLen > maxFieldLen){
+                maxFieldLen = fLen;
+            }
+        }
+
+        // Build CREATE TABLE.
+        final int nmFields = columns.size();
+        int cnFields = 0;
+        for (FieldSpec field : columns) {
+            String fieldName = field.getColumnConstant();
+            String comma = cnFields + 1 == nmFields ? "" : ",";
+            cnFields += 1;
+
+            sb.append("+ ").append(rightPad(fieldName, maxFieldLen+3)).append(" + \" ").append(getColumnDefinition(field)).append(comma).append(" \"\n");
+        }
+
+        sb.append("+ \");\";\n");
+        return sb.toString();
+    }
+
+    public String generateCreateIndexes() {
+        StringBuilder sb = new StringBuilder("public static final String[] CREATE_INDEXES = new String[] {\n");
+        final int nmIndexes = spec.getIndexes().size();
+        int cnIndexes = 0;
+
+        for (ModelSpec.IndexSpec index : spec.getIndexes()) {
+            String comma = cnIndexes + 1 == nmIndexes ? "" : ",";
+            sb.append(getCreateIndexExpression(index)).append(comma).append("\n");
+            cnIndexes += 1;
+        }
+
+        sb.append("};\n");
+        return sb.toString();
+    }
+
+    /**
+     * Column type and constraints as in CREATE TABLE, "id" is the autoincrement primary key.
+     */
+    public String getColumnDefinition(FieldSpec field) {
+        if (field.isPrimaryKey()){
+            return "INTEGER PRIMARY KEY AUTOINCREMENT";
+        }
+
+        return field.getSqlType();
+    }
+
+    /**
+     * Java string expression of the CREATE INDEX statement.
+     */
+    private String getCreateIndexExpression(ModelSpec.IndexSpec index) {
+        StringBuilder indexName = new StringBuilder();
+        StringBuilder columns = new StringBuilder();
+        for (FieldSpec field : index.getFields()) {
+            if (columns.length() > 0){
+                columns.append(" + \", \" + ");
+            }
+
+            indexName.append("_").append(CaseFormat.LOWER_CAMEL.to(CaseFormat.LOWER_UNDERSCORE, field.getName()));
+            columns.append(field.getColumnConstant());
+        }
+
+        return "\"CREATE " + (index.isUnique() ? "UNIQUE " : "") + "INDEX IF NOT EXISTS idx_\" + TABLE + \""
+                + indexName + " ON \" + TABLE + \"(\" + " + columns + " + \")\"";
+    }
+
+    /**
+     * Generates UPGRADE_TO_V{version} statements migrating the previous table to the current fields.
+     * Added columns are appended with ALTER TABLE ADD COLUMN. Dropped columns, changed definitions or an added
+     * primary key require a rebuild in the order documented by SQLite: a new table is created, common columns are
+     * copied over, the old table is dropped, the new one is renamed to the table name, indexes and full-text
+     * triggers are recreated. The table keeps its name throughout, so REFERENCES of other tables stay intact.
+     * Table columns are written as literals, so the statements stay valid when the fields change again.
+     */
+    public String generateUpgrade(int version, TableSchema previous) {
+        final List<FieldSpec> added = new ArrayList<FieldSpec>();
+        final List<String> common = new ArrayList<String>();
+        boolean rebuild = false;
+        for (FieldSpec field : columns) {
+            final String column = field.getColumnName();
+            if (!previous.hasColumn(column)) {
+                added.add(field);
+                rebuild |= getColumnDefinition(field).toUpperCase().contains("PRIMARY KEY");
+                continue;
+            }
+
+            common.add(column);
+            rebuild |= !TableSchema.sameDefinition(previous.getDefinition(column), getColumnDefinition(field));
+        }
+
+        rebuild |= common.size() != previous.getColumns().size();
+
+        final List<String> statements = new ArrayList<String>();
+        if (!rebuild) {
+            for (FieldSpec field : added) {
+                statements.add("\"ALTER TABLE \" + TABLE + \" ADD COLUMN " + field.getColumnName() + " " + getColumnDefinition(field) + "\"");
+            }
+        } else {
+            final String newTable = "\" + TABLE + \"_new_v" + version;
+            final String commonColumns = Joiner.on(", ").join(common);
+            StringBuilder create = new StringBuilder("\"CREATE TABLE " + newTable + " (\"");
+            for (int i = 0; i < columns.size(); i++) {
+                final FieldSpec field = columns.get(i);
+                create.append("\n+ \"").append(field.getColumnName()).append(" ").append(getColumnDefinition(field))
+                        .append(i + 1 == columns.size() ? "" : ", ").append("\"");
+            }
+            create.append("\n+ \")\"");
+
+            statements.add(create.toString());
+            if (!common.isEmpty()) {
+                statements.add("\"INSERT INTO " + newTable + " (" + commonColumns + ") SELECT " + commonColumns + " FROM \" + TABLE");
+            }
+            statements.add("\"DROP TABLE \" + TABLE");
+            statements.add("\"ALTER TABLE " + newTable + " RENAME TO \" + TABLE");
+            for (ModelSpec.IndexSpec index : spec.getIndexes()) {
+                statements.add(getCreateIndexExpression(index));
+            }
+
+            // Triggers were dropped with the table, the index is rebuilt as rowids may have changed.
+            if (hasSearchableFields()) {
+                statements.add("\"DROP TABLE IF EXISTS \" + " + FTS_TABLE_NAME);
+                statements.addAll(getCreateFtsStatements());
+            }
+        }
+
+        StringBuilder sb = new StringBuilder("public static final String[] " + getUpgradeConstant(version) + " = new String[] {\n");
+        for (int i = 0; i < statements.size(); i++) {
+            sb.append(statements.get(i)).append(i + 1 == statements.size() ? "\n" : ",\n");
+        }
+
+        sb.append("};\n");
+        return sb.toString();
+    }
+
+    public static String getUpgradeConstant(int version) {
+        return "UPGRADE_TO_V" + version;
+    }
+
+    public boolean hasSearchableFields() {
+        for (FieldSpec field : columns) {
+            if (field.isSearchable()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    public String generateFtsTable() {
+        return "public static final String " + FTS_TABLE_NAME + " = TABLE + \"_fts\";\n";
+    }
+
+    /**
+     * FTS4 external content table over searchable columns, triggers keeping it in sync with the table and
+     * a rebuild indexing rows already present. The table id is the rowid shared with the index.
+     */
+    public String generateCreateFts() {
+        final StringBuilder sb = new StringBuilder("public static final String[] " + CREATE_FTS_NAME + " = new String[] {\n");
+        final List<String> statements = getCreateFtsStatements();
+        for (int i = 0; i < statements.size(); i++) {
+            sb.append(statements.get(i)).append(i + 1 == statements.size() ? "\n" : ",\n");
+        }
+
+        sb.append("};\n");
+        return sb.toString();
+    }
+
+    /**
+     * Java string expressions of the CREATE_FTS statements.
+     */
+    private List<String> getCreateFtsStatements() {
+        final StringBuilder ftsColumns = new StringBuilder();
+        final StringBuilder newValues = new StringBuilder();
+        for (FieldSpec field : columns) {
+            if (!field.isSearchable()) {
+                continue;
+            }
+
+            ftsColumns.append(" + \", \" + ").append(field.getColumnConstant());
+            newValues.append(" + \", new.\" + ").append(field.getColumnConstant());
+        }
+
+        final String insert = "\"INSERT INTO \" + " + FTS_TABLE_NAME + " + \"(docid\"" + ftsColumns
+                + " + \") VALUES (new.rowid\"" + newValues + " + \"); END\"";
+        final String delete = "\"DELETE FROM \" + " + FTS_TABLE_NAME + " + \" WHERE docid = old.rowid; END\"";
+
+        return Arrays.asList(
+                "\"CREATE VIRTUAL TABLE IF NOT EXISTS \" + " + FTS_TABLE_NAME + " + \" USING fts4(content=\\\"\" + TABLE + \"\\\"\"" + ftsColumns + " + \")\"",
+                "\"CREATE TRIGGER IF NOT EXISTS \" + TABLE + \"_fts_bu BEFORE UPDATE ON \" + TABLE + \" BEGIN \"\n+ " + delete,
+                "\"CREATE TRIGGER IF NOT EXISTS \" + TABLE + \"_fts_bd BEFORE DELETE ON \" + TABLE + \" BEGIN \"\n+ " + delete,
+                "\"CREATE TRIGGER IF NOT EXISTS \" + TABLE + \"_fts_au AFTER UPDATE ON \" + TABLE + \" BEGIN \"\n+ " + insert,
+                "\"CREATE TRIGGER IF NOT EXISTS \" + TABLE + \"_fts_ai AFTER INSERT ON \" + TABLE + \" BEGIN \"\n+ " + insert,
+                "\"INSERT INTO \" + " + FTS_TABLE_NAME + " + \"(\" + " + FTS_TABLE_NAME + " + \") VALUES ('rebuild')\"");
+    }
+
+    /**
+     * Full-text query returning matching rowids, best ranked first.
+     */
+    public String generateSearch() {
+        return "public static long[] search(android.database.sqlite.SQLiteDatabase db, String query) {\n" +
+                "    final android.database.Cursor c = db.rawQuery(\"SELECT docid, matchinfo(\" + " + FTS_TABLE_NAME + " + \", 'pcx') FROM \" + " + FTS_TABLE_NAME + "\n" +
+                "            + \" WHERE \" + " + FTS_TABLE_NAME + " + \" MATCH ?\", new String[] {query});\n" +
+                "    try {\n" +
+                "        final long[] rowids = new long[c.getCount()];\n" +
+                "        final double[] scores = new double[rowids.length];\n" +
+                "        final Integer[] order = new Integer[rowids.length];\n" +
+                "        for (int i = 0; c.moveToNext(); i++) {\n" +
+                "            rowids[i] = c.getLong(0);\n" +
+                "            scores[i] = " + SEARCH_RANK_NAME + "(c.getBlob(1));\n" +
+                "            order[i] = i;\n" +
+                "        }\n" +
+                "        java.util.Arrays.sort(order, new java.util.Comparator<Integer>() {\n" +
+                "            @Override\n" +
+                "            public int compare(Integer a, Integer b) {\n" +
+                "                return Double.compare(scores[b], scores[a]);\n" +
+                "            }\n" +
+                "        });\n" +
+                "        final long[] ranked = new long[order.length];\n" +
+                "        for (int i = 0; i < order.length; i++) {\n" +
+                "            ranked[i] = rowids[order[i]];\n" +
+                "        }\n" +
+                "        return ranked;\n" +
+                "    } finally {\n" +
+                "        c.close();\n" +
+                "    }\n" +
+                "}\n";
+    }
+
+    /**
+     * Rank from FTS4 matchinfo 'pcx': hits of each phrase in each column of the row relative to its hits
+     * in all rows, summed. FTS4 has no built-in ranking function.
+     */
+    public String generateSearchRank() {
+        return "private static double " + SEARCH_RANK_NAME + "(byte[] matchinfo) {\n" +
+                "    final java.nio.IntBuffer info = java.nio.ByteBuffer.wrap(matchinfo).order(java.nio.ByteOrder.nativeOrder()).asIntBuffer();\n" +
+                "    final int phrases = info.get(0);\n" +
+                "    final int columns = info.get(1);\n" +
+                "    double score = 0;\n" +
+                "    for (int p = 0; p < phrases; p++) {\n" +
+                "        for (int col = 0; col < columns; col++) {\n" +
+                "            final int hits = info.get(2 + 3 * (p * columns + col));\n" +
+                "            final int globalHits = info.get(3 + 3 * (p * columns + col));\n" +
+                "            if (hits > 0) {\n" +
+                "                score += (double) hits / globalHits;\n" +
+                "            }\n" +
+                "        }\n" +
+                "    }\n" +
+                "    return score;\n" +
+                "}\n";
+    }
+
+    /**
+     * Index on the pagination sort key and the primary key tiebreaker.
+     */
+    public static ModelSpec.IndexSpec getPageIndex(FieldSpec sortKey, FieldSpec primaryKey) {
+        return new ModelSpec.IndexSpec(Arrays.asList(sortKey, primaryKey), false);
+    }
+
+    /**
+     * True if both the sort key and the primary key are present.
+     */
+    public boolean hasKeysetPagination() {
+        return spec.getSortKey() != null && spec.getPrimaryKey() != null;
+    }
+
+    public String generateCreatePageIndex() {
+        return "public static final String " + CREATE_PAGE_INDEX_NAME + " = "
+                + getCreateIndexExpression(getPageIndex(spec.getSortKey(), spec.getPrimaryKey())) + ";\n";
+    }
+
+    /**
+     * First page query, columns in the FULL_PROJECTION order, ordered by the sort key and the primary key.
+     */
+    public String generatePageFirstSql() {
+        return "public static final String " + PAGE_FIRST_SQL_NAME + " = " + getPageSelect() + "\n"
+                + "+ \" ORDER BY \" + " + getPageOrder() + " + \" LIMIT ?\";\n";
+    }
+
+    /**
+     * Page following the given sort key and id. The row value comparison is expanded for older SQLite versions,
+     * with a leading range term on the sort key so the (sort key, id) index is searched instead of scanned.
+     */
+    public String generatePageNextSql() {
+        final String sort = spec.getSortKey().getColumnConstant();
+        final String id = spec.getPrimaryKey().getColumnConstant();
+        return "public static final String " + PAGE_NEXT_SQL_NAME + " = " + getPageSelect() + "\n"
+                + "+ \" WHERE \" + " + sort + " + \" >= ? AND (\" + " + sort + " + \" > ? OR \" + " + id + " + \" > ?)\"\n"
+                + "+ \" ORDER BY \" + " + getPageOrder() + " + \" LIMIT ?\";\n";
+    }
+
+    private String getPageSelect() {
+        StringBuilder sb = new StringBuilder("\"SELECT \"");
+        for (int i = 0; i < columns.size(); i++) {
+            sb.append("\n+ ").append(columns.get(i).getColumnConstant());
+            if (i + 1 < columns.size()) {
+                sb.append(" + \", \"");
+            }
+        }
+
+        return sb.append("\n+ \" FROM \" + TABLE").toString();
+    }
+
+    private String getPageOrder() {
+        return spec.getSortKey().getColumnConstant() + " + \", \" + " + spec.getPrimaryKey().getColumnConstant();
+    }
+
+    public String generateFirstPage() {
+        return "public static android.database.Cursor firstPage(android.database.sqlite.SQLiteDatabase db, int limit) {\n" +
+                "    return db.rawQuery(" + PAGE_FIRST_SQL_NAME + ", new String[] {String.valueOf(limit)});\n" +
+                "}\n";
+    }
+
+    public String generateNextPage() {
+        final FieldSpec sortKey = spec.getSortKey();
+        final FieldSpec primaryKey = spec.getPrimaryKey();
+        return "public static android.database.Cursor nextPage(android.database.sqlite.SQLiteDatabase db, "
+                + sortKey.getType() + " lastSortValue, " + primaryKey.getType() + " lastId, int limit) {\n" +
+                "    final String sortValue = String.valueOf(" + getSqlSerializer(sortKey, "lastSortValue") + ");\n" +
+                "    return db.rawQuery(" + PAGE_NEXT_SQL_NAME + ", new String[] {sortValue, sortValue, String.valueOf("
+                + getSqlSerializer(primaryKey, "lastId") + "), String.valueOf(limit)});\n" +
+                "}\n";
+    }
+
+    public String generateCreateFromCursor() {
+        StringBuilder sb = new StringBuilder("private final void createFromCursor(Cursor c){\n" +
+                "        int colCount = c.getColumnCount();\n" +
+                "        for(int i=0; i<colCount; i++){\n" +
+                "            final String colname = c.getColumnName(i);");
+
+        final int nmFields = columns.size();
+        int cnFields = 0;
+
+        for (FieldSpec field : columns) {
+            if (cnFields > 0){
+                sb.append(" else ");
+            }
+
+            sb.append("if (").append(field.getColumnConstant()).append(".equals(colname)){\n");
+            sb.append("this.").append(field.getName()).append(" = ").append(getSqlDeserializer(field, "i")).append(";\n");
+            sb.append("}");
+            cnFields += 1;
+        }
+
+        if (nmFields > 0){
+            sb.append("else {\n" +
+                    "Log.w(THIS_FILE, \"Unknown column name: \" + colname);\n" +
+                    "}");
+        }
+
+        sb.append("}\n}\n");
+        return sb.toString();
+    }
+
+    public String generateColumnIndexConstant(FieldSpec field, int colIdx) {
+        return "public static final int " + field.getColumnIndexConstant() + " = " + colIdx + ";\n";
+    }
+
+    public String generateCreateFromCursorFullProjection() {
+        StringBuilder sb = new StringBuilder("public final void createFromCursorFullProjection(android.database.Cursor c){\n");
+        for (FieldSpec field : columns) {
+            sb.append("this.").append(field.getName()).append(" = ").append(getSqlDeserializer(field, field.getColumnIndexConstant())).append(";\n");
+        }
+
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    public String generateColumnMap() {
+        StringBuilder sb = new StringBuilder("public static final class " + COLUMN_MAP_NAME + " {\n");
+        for (FieldSpec field : columns) {
+            sb.append("public final int ").append(field.getName()).append(";\n");
+        }
+
+        sb.append("public " + COLUMN_MAP_NAME + "(android.database.Cursor cursor){\n");
+        sb.append("this(cursor, \"\");\n");
+        sb.append("}\n");
+
+        sb.append("/**\n * Column names are prefixed, e.g., by " + JOIN_PROJECTION_NAME + " aliases.\n */\n");
+        sb.append("public " + COLUMN_MAP_NAME + "(android.database.Cursor cursor, String prefix){\n");
+        for (FieldSpec field : columns) {
+            sb.append("this.").append(field.getName()).append(" = cursor.getColumnIndex(prefix + ").append(field.getColumnConstant()).append(");\n");
+        }
+
+        sb.append("}\n}\n");
+        return sb.toString();
+    }
+
+    public boolean hasForeignKeys() {
+        for (FieldSpec field : columns) {
+            if (field.getForeignKey() != null) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Creates the referenced model holding only its id, read by the plain cursor readers.
+     */
+    public String generateForeignKeyReference(FieldSpec field) {
+        final ForeignKeySpec foreignKey = field.getForeignKey();
+        return "private static " + foreignKey.getModelName() + " " + field.getReferenceFactoryName() + "(long id) {\n" +
+                "final " + foreignKey.getModelName() + " reference = new " + foreignKey.getModelName() + "();\n" +
+                foreignKey.getIdWriteStatement("reference", "id") + "\n" +
+                "return reference;\n" +
+                "}\n";
+    }
+
+    /**
+     * FROM clause left joining the referenced tables, each aliased by {@link #getJoinAlias(FieldSpec)}.
+     */
+    public String generateJoinTables() {
+        StringBuilder sb = new StringBuilder("public static final String " + JOIN_TABLES_NAME + " = TABLE");
+        for (FieldSpec field : columns) {
+            final ForeignKeySpec foreignKey = field.getForeignKey();
+            if (foreignKey == null) {
+                continue;
+            }
+
+            final String model = foreignKey.getModelName();
+            final String alias = getJoinAlias(field);
+            sb.append("\n+ \" LEFT JOIN \" + ").append(model).append(".TABLE + \" AS ").append(alias)
+                    .append(" ON \" + TABLE + \".\" + ").append(field.getColumnConstant())
+                    .append(" + \" = ").append(alias).append(".").append(foreignKey.getIdColumnName()).append("\"");
+        }
+
+        sb.append(";\n");
+        return sb.toString();
+    }
+
+    /**
+     * Alias of the table referenced by the field in joins. The prefix keeps field names such as "order" or "group"
+     * from being parsed as SQL keywords.
+     */
+    public static String getJoinAlias(FieldSpec field) {
+        return "j_" + field.getName();
+    }
+
+    /**
+     * Columns of the table and all referenced tables. Aliases are prefixed with the table name, resp. the field
+     * name, as expected by {@link #generateJoinedColumnMap()}.
+     */
+    public String generateJoinProjection() {
+        final List<String> entries = new ArrayList<String>();
+        for (FieldSpec field : columns) {
+            entries.add("TABLE + \".\" + " + field.getColumnConstant() + " + \" AS \" + TABLE + \"_\" + " + field.getColumnConstant());
+        }
+
+        for (FieldSpec field : columns) {
+            final ForeignKeySpec foreignKey = field.getForeignKey();
+            if (foreignKey == null) {
+                continue;
+            }
+
+            for (String constant : foreignKey.getColumnConstants()) {
+                final String column = foreignKey.getModelName() + "." + constant;
+                entries.add("\"" + getJoinAlias(field) + ".\" + " + column + " + \" AS " + field.getName() + "_\" + " + column);
+            }
+        }
+
+        StringBuilder sb = new StringBuilder("public static final String[] " + JOIN_PROJECTION_NAME + " = new String[] {\n");
+        for (int i = 0; i < entries.size(); i++) {
+            sb.append(entries.get(i)).append(i + 1 == entries.size() ? "\n" : ",\n");
+        }
+
+        sb.append("};\n");
+        return sb.toString();
+    }
+
+    /**
+     * Column maps of the table and referenced tables in a cursor queried with JOIN_PROJECTION.
+     */
+    public String generateJoinedColumnMap() {
+        StringBuilder fields = new StringBuilder("public final " + COLUMN_MAP_NAME + " own;\n");
+        StringBuilder init = new StringBuilder("this.own = new " + COLUMN_MAP_NAME + "(cursor, TABLE + \"_\");\n");
+        for (FieldSpec field : columns) {
+            final ForeignKeySpec foreignKey = field.getForeignKey();
+            if (foreignKey == null) {
+                continue;
+            }
+
+            final String mapClass = foreignKey.getModelName() + "." + COLUMN_MAP_NAME;
+            fields.append("public final ").append(mapClass).append(" ").append(field.getName()).append(";\n");
+            init.append("this.").append(field.getName()).append(" = new ").append(mapClass).append("(cursor, \"").append(field.getName()).append("_\");\n");
+        }
+
+        return "public static final class " + JOINED_COLUMN_MAP_NAME + " {\n" +
+                fields +
+                "public " + JOINED_COLUMN_MAP_NAME + "(android.database.Cursor cursor){\n" +
+                init +
+                "}\n}\n";
+    }
+
+    /**
+     * Fills the model and referenced models from one row of the joined cursor, referenced models are
+     * created only if the joined row exists.
+     */
+    public String generateCreateFromJoinedCursor() {
+        StringBuilder sb = new StringBuilder("public final void createFromJoinedCursor(android.database.Cursor c, " + JOINED_COLUMN_MAP_NAME + " m){\n");
+        sb.append("createFromCursor(c, m.own);\n");
+        for (FieldSpec field : columns) {
+            final ForeignKeySpec foreignKey = field.getForeignKey();
+            if (foreignKey == null) {
+                continue;
+            }
+
+            final String idIdx = "m." + field.getName() + "." + foreignKey.getIdFieldName();
+            sb.append("if (").append(idIdx).append(" != -1 && !c.isNull(").append(idIdx).append(")){\n");
+            sb.append("this.").append(field.getName()).append(" = new ").append(foreignKey.getModelName()).append("();\n");
+            sb.append("this.").append(field.getName()).append(".createFromCursor(c, m.").append(field.getName()).append(");\n");
+            sb.append("}\n");
+        }
+
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    public String generateCreateFromCursorColumnMap() {
+        StringBuilder sb = new StringBuilder("public final void createFromCursor(android.database.Cursor c, " + COLUMN_MAP_NAME + " m){\n");
+        for (FieldSpec field : columns) {
+            String colIdx = "m." + field.getName();
+            sb.append("if (").append(colIdx).append(" != -1){\n");
+            sb.append("this.").append(field.getName()).append(" = ").append(getSqlDeserializer(field, colIdx)).append(";\n");
+            sb.append("}\n");
+        }
+
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    public String generateGetDbContentValues() {
+        StringBuilder sb = new StringBuilder("public ContentValues getDbContentValues() {\n" +
+                "    ContentValues args = new ContentValues();");
+
+        for (FieldSpec field : columns) {
+            if (!field.isPrimitive()){
+                sb.append("if (this.").append(field.getName()).append(" != null)\n");
+                sb.append("    ");
+            }
+
+            sb.append("args.put(").append(field.getColumnConstant()).append(", ").append(getSqlSerializer(field)).append(");\n");
+        }
+
+        sb.append("return args;\n}");
+        return sb.toString();
+    }
+
+    public String generateInsertSql() {
+        StringBuilder sb = new StringBuilder("public static final String INSERT_SQL = \"INSERT INTO \"\n");
+        sb.append("+ TABLE\n");
+        sb.append("+ \" (\"\n");
+
+        final int nmFields = columns.size();
+        int cnFields = 0;
+        StringBuilder placeholders = new StringBuilder();
+        for (FieldSpec field : columns) {
+            String comma = cnFields + 1 == nmFields ? "" : ", ";
+            sb.append("+ ").append(field.getColumnConstant());
+            if (comma.length() > 0){
+                sb.append(" + \"").append(comma).append("\"");
+            }
+
+            sb.append("\n");
+            placeholders.append("?").append(comma);
+            cnFields += 1;
+        }
+
+        sb.append("+ \") VALUES (").append(placeholders).append(")\";\n");
+        return sb.toString();
+    }
+
+    /**
+     * Binding method, indexes are 1-based.
+     */
+    public String generateBindTo() {
+        StringBuilder sb = new StringBuilder("public void bindTo(android.database.sqlite.SQLiteStatement stmt) {\n");
+        sb.append("stmt.clearBindings();\n");
+        int bindIdx = 1;
+        for (FieldSpec field : columns) {
+            sb.append(getSqlBinder(field, "stmt", String.valueOf(bindIdx++)));
+        }
+
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    public String generateInsertAll() {
+        final String className = spec.getClassName();
+        return "public static void insertAll(android.database.sqlite.SQLiteDatabase db, java.lang.Iterable<" + className + "> items) {\n" +
+                "    final android.database.sqlite.SQLiteStatement stmt = db.compileStatement(INSERT_SQL);\n" +
+                "    db.beginTransaction();\n" +
+                "    try {\n" +
+                "        for (" + className + " item : items) {\n" +
+                "            item.bindTo(stmt);\n" +
+                "            stmt.executeInsert();\n" +
+                "        }\n" +
+                "        db.setTransactionSuccessful();\n" +
+                "    } finally {\n" +
+                "        db.endTransaction();\n" +
+                "        stmt.close();\n" +
+                "    }\n" +
+                "}\n";
+    }
+
+    public String generateDirtyBitConstant(FieldSpec field, int bit) {
+        return "public static final long " + field.getDirtyBitConstant() + " = " + getDirtyBitValue(bit) + ";\n";
+    }
+
+    public String getDirtyBitValue(int bit) {
+        return "1L << " + bit;
+    }
+
+    public String generateDirtyMarkStatement(FieldSpec field) {
+        return "this." + DIRTY_MASK_NAME + " |= " + field.getDirtyBitConstant() + ";";
+    }
+
+    public String generateDirtySetter(FieldSpec field) {
+        return "public void " + field.getSetterName() + "(" + field.getType() + " " + field.getName() + ") {\n" +
+                "this." + field.getName() + " = " + field.getName() + ";\n" +
+                generateDirtyMarkStatement(field) + "\n" +
+                "}\n";
+    }
+
+    /**
+     * Dirty content values, null values of changed fields are written as NULL.
+     */
+    public String generateGetDirtyContentValues() {
+        StringBuilder sb = new StringBuilder("public android.content.ContentValues getDirtyContentValues() {\n" +
+                "    android.content.ContentValues args = new android.content.ContentValues();");
+        for (FieldSpec field : columns) {
+            final String fieldName = field.getColumnConstant();
+            sb.append("if ((").append(DIRTY_MASK_NAME).append(" & ").append(field.getDirtyBitConstant()).append(") != 0) {\n");
+            if (!field.isPrimitive()){
+                sb.append("if (this.").append(field.getName()).append(" == null)\n");
+                sb.append("    args.putNull(").append(fieldName).append(");\n");
+                sb.append("else\n    ");
+            }
+
+            sb.append("args.put(").append(fieldName).append(", ").append(getSqlSerializer(field)).append(");\n");
+            sb.append("}\n");
+        }
+
+        sb.append("return args;\n}");
+        return sb.toString();
+    }
+
+    /**
+     * UPDATE statement with dirty columns only, null if no column is dirty.
+     */
+    public String generateGetDirtyUpdateSql() {
+        StringBuilder sb = new StringBuilder("public String getDirtyUpdateSql(String whereClause) {\n" +
+                "    if (" + DIRTY_MASK_NAME + " == 0) {\n" +
+                "        return null;\n" +
+                "    }\n" +
+                "    final StringBuilder sb = new StringBuilder(\"UPDATE \").append(TABLE).append(\" SET \");\n" +
+                "    boolean first = true;\n");
+        for (FieldSpec field : columns) {
+            sb.append("if ((").append(DIRTY_MASK_NAME).append(" & ").append(field.getDirtyBitConstant()).append(") != 0) {\n");
+            sb.append("sb.append(first ? \"\" : \", \").append(").append(field.getColumnConstant()).append(").append(\"=?\");\n");
+            sb.append("first = false;\n");
+            sb.append("}\n");
+        }
+
+        sb.append("return sb.append(\" WHERE \").append(whereClause).toString();\n}");
+        return sb.toString();
+    }
+
+    /**
+     * Binding of dirty columns, returns the next free parameter index for the WHERE clause arguments.
+     */
+    public String generateBindDirtyUpdate() {
+        StringBuilder sb = new StringBuilder("public int bindDirtyUpdate(android.database.sqlite.SQLiteStatement stmt) {\n" +
+                "    stmt.clearBindings();\n" +
+                "    int idx = 1;\n");
+        for (FieldSpec field : columns) {
+            sb.append("if ((").append(DIRTY_MASK_NAME).append(" & ").append(field.getDirtyBitConstant()).append(") != 0) {\n");
+            sb.append(getSqlBinder(field, "stmt", "idx++"));
+            sb.append("}\n");
+        }
+
+        sb.append("return idx;\n}");
+        return sb.toString();
+    }
+
+    public String getSqlSerializer(FieldSpec field){
+        return getSqlSerializer(field, field.getName());
+    }
+
+    /**
+     * Returns ContentValues compatible expression of the value of the field type.
+     */
+    public String getSqlSerializer(FieldSpec field, String value){
+        String typeStr = field.getType();
+        if (field.getEnumName() != null) {
+            return field.getEnumEncoderName() + "(" + value + ")";
+        } else if (field.getForeignKey() != null) {
+            return field.getForeignKey().getIdReadExpression(value);
+        } else if ("java.util.Date".equalsIgnoreCase(typeStr)) {
+            return value + ".getTime()";
+        } else if ("boolean".equals(typeStr) || "java.lang.Boolean".equalsIgnoreCase(typeStr)){
+            return value + " ? 1 : 0";
+        } else if ("char".equals(typeStr)){
+            return "String.valueOf(" + value + ")";
+        } else if ("java.lang.Character".equals(typeStr)){
+            return value + " == null ? null : " + value + ".toString()";
+        } else {
+            return value;
+        }
+    }
+
+    /**
+     * Returns statement binding the given field to the SQLiteStatement parameter.
+     *
+     * @param field field to bind
+     * @param stmt  statement variable name
+     * @param idx   1-based parameter index expression
+     * @return
+     */
+    public String getSqlBinder(FieldSpec field, String stmt, String idx){
+        final String typeStr = field.getType();
+        final String value = "this." + field.getName();
+        final String bind;
+
+        if (field.getForeignKey() != null) {
+            bind = stmt + ".bindLong(" + idx + ", " + field.getForeignKey().getIdReadExpression(value) + ");\n";
+        } else if ("byte".equals(typeStr) || "short".equals(typeStr) || "int".equals(typeStr) || "long".equals(typeStr)
+                || "java.lang.Byte".equals(typeStr) || "java.lang.Short".equals(typeStr)
+                || "java.lang.Integer".equals(typeStr) || "java.lang.Long".equals(typeStr)) {
+            bind = stmt + ".bindLong(" + idx + ", " + value + ");\n";
+        } else if ("double".equals(typeStr) || "float".equals(typeStr)
+                || "java.lang.Double".equals(typeStr) || "java.lang.Float".equals(typeStr)){
+            bind = stmt + ".bindDouble(" + idx + ", " + value + ");\n";
+        } else if ("boolean".equals(typeStr) || "java.lang.Boolean".equals(typeStr)){
+            bind = stmt + ".bindLong(" + idx + ", " + value + " ? 1 : 0);\n";
+        } else if ("byte[]".equals(typeStr)){
+            bind = stmt + ".bindBlob(" + idx + ", " + value + ");\n";
+        } else if ("java.util.Date".equals(typeStr)){
+            bind = stmt + ".bindLong(" + idx + ", " + value + ".getTime());\n";
+        } else if (field.getEnumName() != null){
+            bind = stmt + ".bindLong(" + idx + ", " + field.getEnumEncoderName() + "(" + value + "));\n";
+        } else if ("java.lang.String".equals(typeStr)){
+            bind = stmt + ".bindString(" + idx + ", " + value + ");\n";
+        } else if ("char".equals(typeStr) || "java.lang.Character".equals(typeStr)){
+            bind = stmt + ".bindString(" + idx + ", String.valueOf(" + value + "));\n";
+        } else {
+            bind = stmt + ".bindString(" + idx + ", " + value + ".toString());\n";
+        }
+
+        if (field.isPrimitive()){
+            return bind;
+        }
+
+        return "if (" + value + " == null) {\n" +
+                stmt + ".bindNull(" + idx + ");\n" +
+                "} else {\n" +
+                bind +
+                "}\n";
+    }
+
+    /**
+     * Returns cursor getter expression for the given field.
+     *
+     * @param field field to read
+     * @param idx   column index expression, e.g., loop variable or COL_IDX_* constant
+     * @return
+     */
+    public String getSqlDeserializer(FieldSpec field, String idx){
+        String typeStr = field.getType();
+        if (field.getForeignKey() != null) {
+            return "c.isNull(" + idx + ") ? null : " + field.getReferenceFactoryName() + "(c.getLong(" + idx + "))";
+        } else if ("byte".equals(typeStr)) {
+            return "(byte) c.getInt(" + idx + ")";
+        } else if ("java.lang.Byte".equals(typeStr)){
+            return "(Byte) c.getInt(" + idx + ")";
+        } else if ("short".equals(typeStr)){
+            return "c.getShort(" + idx + ")";
+        } else if ("int".equals(typeStr) || "java.lang.Integer".equals(typeStr)){
+            return "c.getInt(" + idx + ")";
+        } else if ("long".equals(typeStr) || "java.lang.Long".equals(typeStr)){
+            return "c.getLong(" + idx + ")";
+        }  else if ("double".equals(typeStr) || "java.lang.Double".equals(typeStr)){
+            return "c.getDouble(" + idx + ")";
+        } else if ("float".equals(typeStr) || "java.lang.Float".equals(typeStr)){
+            return "c.getFloat(" + idx + ")";
+        } else if ("byte[]".equals(typeStr)){
+            return "c.getBlob(" + idx + ")";
+        } else if ("boolean".equals(typeStr)){
+            return "c.getInt(" + idx + ") == 1";
+        } else if ("java.lang.Boolean".equals(typeStr)) {
+            return "(Boolean) (c.getInt(" + idx + ") == 1)";
+        } else if ("java.util.Date".equals(typeStr)){
+            return "new Date(c.getLong(" + idx + "))";
+        } else if ("char".equals(typeStr)){
+            return "c.getString(" + idx + ").charAt(0)";
+        } else if ("java.lang.Character".equals(typeStr)){
+            return "c.isNull(" + idx + ") ? null : (Character) c.getString(" + idx + ").charAt(0)";
+        } else if (field.getEnumName() != null){
+            return "c.isNull(" + idx + ") ? null : " + field.getEnumDecoderName() + "(c.getInt(" + idx + "))";
+        } else {
+            return "c.getString(" + idx + ")";
+        }
+    }
+
+    private static String rightPad(String name, int desiredSize){
+        final int ln = name.length();
+        if (desiredSize <= ln){
+            return name;
+        }
+
+        int toAdd = desiredSize - ln;
+        StringBuilder sb = new StringBuilder(name);
+        for(int i=0; i<toAdd; i++){
+            sb.append(" ");
+        }
+
+        return sb.toString();
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2015 Dusan Klinec Ph4r05.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.phonex.intellij.android.dbmodel.spec;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Columns of a table parsed from CREATE TABLE statement, in declaration order. Table constraints are ignored.
+ */
+public final class TableSchema {
+    private static final String[] CONSTRAINT_KEYWORDS = {"CONSTRAINT", "PRIMARY", "UNIQUE", "CHECK", "FOREIGN"};
+
+    private final Map<String, String> columns;
+
+    private TableSchema(Map<String, String> columns) {
+        this.columns = Collections.unmodifiableMap(columns);
+    }
+
+    /**
+     * Parses the statement, e.g., the evaluated CREATE_TABLE constant.
+     *
+     * @return schema, or null if the text is not a CREATE TABLE statement with a column list
+     */
+    public static TableSchema parse(String createTableSql) {
+        final int start = createTableSql.indexOf('(');
+        final int end = createTableSql.lastIndexOf(')');
+        if (start < 0 || end < start || !createTableSql.trim().toUpperCase().startsWith("CREATE")) {
+            return null;
+        }
+
+        final Map<String, String> columns = new LinkedHashMap<String, String>();
+        for (String definition : splitDefinitions(createTableSql.substring(start + 1, end))) {
+            final String[] parts = definition.trim().split("\\s+", 2);
+            if (parts[0].isEmpty() || isConstraint(parts[0])) {
+                continue;
+            }
+
+            columns.put(unquote(parts[0]), parts.length > 1 ? parts[1] : "");
+        }
+
+        return new TableSchema(columns);
+    }
+
+    /**
+     * Column names, in declaration order.
+     */
+    public List<String> getColumns() {
+        return new ArrayList<String>(columns.keySet());
+    }
+
+    public boolean hasColumn(String column) {
+        return columns.containsKey(column);
+    }
+
+    /**
+     * Column definition without the name, e.g., "INTEGER DEFAULT 0".
+     */
+    public String getDefinition(String column) {
+        return columns.get(column);
+    }
+
+    /**
+     * Compares column definitions ignoring case and whitespace.
+     */
+    public static boolean sameDefinition(String a, String b) {
+        return normalize(a).equals(normalize(b));
+    }
+
+    private static String normalize(String definition) {
+        return definition.trim().replaceAll("\\s+", " ").toUpperCase();
+    }
+
+    /**
+     * Splits on commas not nested in parentheses, e.g. DECIMAL(10,2).
+     */
+    private static List<String> splitDefinitions(String text) {
+        final List<String> definitions = new ArrayList<String>();
+        int depth = 0;
+        int from = 0;
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                definitions.add(text.substring(from, i));
+                from = i + 1;
+            }
+        }
+
+        definitions.add(text.substring(from));
+        return definitions;
+    }
+
+    private static boolean isConstraint(String token) {
+        for (String keyword : CONSTRAINT_KEYWORDS) {
+            if (keyword.equalsIgnoreCase(token)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static String unquote(String name) {
+        if (name.length() > 1 && "\"`[".indexOf(name.charAt(0)) >= 0) {
+            return name.substring(1, name.length() - 1);
+        }
+
+        return name;
+    }
+}
@@ -0,0 +1,36 @@
+package net.phonex.intellij.android.dbmodel.typeserializers;
+
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiModifier;
+import com.intellij.psi.PsiType;
+import com.intellij.psi.util.PsiTypesUtil;
+import net.phonex.intellij.android.dbmodel.CodeGenerator;
+import net.phonex.intellij.android.dbmodel.typeserializers.serializers.DirectParcelableSerializer;
+import net.phonex.intellij.android.dbmodel.util.PsiUtils;
+
+/**
+ * Serializer factory for final Parcelable classes with a CREATOR field. Being final, the runtime class is known
+ * at generation time, so the class name and reflective CREATOR lookup of writeParcelable can be skipped.
+ */
+public class DirectParcelableSerializerFactory implements TypeSerializerFactory {
+
+    private final DirectParcelableSerializer mSerializer = new DirectParcelableSerializer();
+
+    @Override
+    public TypeSerializer getSerializer(PsiType psiType) {
+        PsiClass psiClass = PsiTypesUtil.getPsiClass(psiType);
+        if (psiClass == null || !psiClass.hasModifierProperty(PsiModifier.FINAL)) {
+            return null;
+        }
+
+        if (psiClass.findFieldByName(CodeGenerator.CREATOR_NAME, false) == null) {
+            return null;
+        }
+
+        if (PsiUtils.isOfType(psiType, "android.os.Parcelable")) {
+            return mSerializer;
+        }
+
+        return null;
+    }
+}
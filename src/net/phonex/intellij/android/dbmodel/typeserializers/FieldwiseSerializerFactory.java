@@ -0,0 +1,122 @@
+package net.phonex.intellij.android.dbmodel.typeserializers;
+
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiField;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiModifier;
+import com.intellij.psi.PsiType;
+import com.intellij.psi.util.PsiTypesUtil;
+import net.phonex.intellij.android.dbmodel.typeserializers.serializers.FieldwiseSerializer;
+import net.phonex.intellij.android.dbmodel.util.PsiUtils;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Serializer factory for Serializable classes from the project sources. Such classes get generated
+ * field-wise Parcel codec instead of Java serialization. Only final classes qualify, as the value is read back
+ * by the public no-arg constructor and a subclass instance would lose its state. Classes with inherited or final
+ * serializable fields, classes whose fields can reference the class again (cyclic graphs are handled only by
+ * Java serialization), library, generic classes and classes customizing Java serialization are left
+ * to {@link SerializableSerializerFactory}.
+ */
+public class FieldwiseSerializerFactory implements TypeSerializerFactory {
+    private static final String[] CUSTOM_SERIALIZATION_METHODS = new String[] {
+            "writeObject", "readObject", "writeReplace", "readResolve"};
+
+    private final FieldwiseSerializer mSerializer = new FieldwiseSerializer();
+
+    @Override
+    public TypeSerializer getSerializer(PsiType psiType) {
+        PsiClass psiClass = PsiTypesUtil.getPsiClass(psiType);
+        if (psiClass == null
+                || psiClass.isInterface()
+                || psiClass.isEnum()
+                || !psiClass.hasModifierProperty(PsiModifier.FINAL)
+                || psiClass.hasTypeParameters()
+                || !psiClass.getManager().isInProject(psiClass)) {
+            return null;
+        }
+
+        if (!PsiUtils.isOfType(psiType, "java.io.Serializable") || !isInstantiable(psiClass) || !hasOwnAssignableFields(psiClass)) {
+            return null;
+        }
+
+        for (String methodName : CUSTOM_SERIALIZATION_METHODS) {
+            if (psiClass.findMethodsByName(methodName, false).length > 0) {
+                return null;
+            }
+        }
+
+        if (isReachable(psiClass, psiClass, new HashSet<PsiClass>())) {
+            return null;
+        }
+
+        return mSerializer;
+    }
+
+    /**
+     * Class and its outer classes are public, nested ones static, with a public no-arg constructor.
+     */
+    private static boolean isInstantiable(PsiClass psiClass) {
+        for (PsiClass cls = psiClass; cls != null; cls = cls.getContainingClass()) {
+            if (!cls.hasModifierProperty(PsiModifier.PUBLIC)
+                    || (cls.getContainingClass() != null && !cls.hasModifierProperty(PsiModifier.STATIC))) {
+                return false;
+            }
+        }
+
+        PsiMethod[] constructors = psiClass.getConstructors();
+        if (constructors.length == 0) {
+            return true;
+        }
+
+        for (PsiMethod constructor : constructors) {
+            if (constructor.getParameterList().getParametersCount() == 0
+                    && constructor.hasModifierProperty(PsiModifier.PUBLIC)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * All serializable state is declared in the class itself, in non-final fields the codec can assign.
+     */
+    private static boolean hasOwnAssignableFields(PsiClass psiClass) {
+        for (PsiField field : psiClass.getAllFields()) {
+            if (field.hasModifierProperty(PsiModifier.STATIC) || field.hasModifierProperty(PsiModifier.TRANSIENT)) {
+                continue;
+            }
+
+            if (field.getContainingClass() != psiClass || field.hasModifierProperty(PsiModifier.FINAL)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Checks whether the target class is reachable through serializable fields of project classes.
+     */
+    private static boolean isReachable(PsiClass from, PsiClass target, Set<PsiClass> visited) {
+        for (PsiField field : PsiUtils.getSerializableFields(from)) {
+            final PsiClass fieldClass = PsiTypesUtil.getPsiClass(field.getType().getDeepComponentType());
+            if (fieldClass == null || !fieldClass.getManager().isInProject(fieldClass)) {
+                continue;
+            }
+
+            if (fieldClass == target) {
+                return true;
+            }
+
+            if (visited.add(fieldClass) && isReachable(fieldClass, target, visited)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -20,7 +20,8 @@ public class ParcelableListSerializerFactory implements TypeSerializerFactory {
     @Override
     public TypeSerializer getSerializer(PsiType psiType) {
         // There might actually be a way to do this w/ a Collection, but it might not be order-safe
-        if (PsiUtils.isTypedClass(psiType, "java.util.List", "android.os.Parcelable")) {
+        PsiType elementType = PsiUtils.getListElementType(psiType);
+        if (elementType != null && PsiUtils.isOfType(elementType, "android.os.Parcelable")) {
             return mSerializer;
         }
 
@@ -0,0 +1,31 @@
+package net.phonex.intellij.android.dbmodel.typeserializers;
+
+import com.intellij.psi.PsiType;
+import net.phonex.intellij.android.dbmodel.typeserializers.serializers.PrimitiveListSerializer;
+import net.phonex.intellij.android.dbmodel.util.PsiUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Serializer factory for List&lt;Integer&gt; and List&lt;Long&gt; fields, uses length prefixed primitive loop
+ * instead of reflective writeList.
+ */
+public class PrimitiveListSerializerFactory implements TypeSerializerFactory {
+    private final Map<String, TypeSerializer> handledTypes = new HashMap<String, TypeSerializer>();
+
+    public PrimitiveListSerializerFactory() {
+        handledTypes.put("java.lang.Integer", new PrimitiveListSerializer("java.lang.Integer", "Int"));
+        handledTypes.put("java.lang.Long", new PrimitiveListSerializer("java.lang.Long", "Long"));
+    }
+
+    @Override
+    public TypeSerializer getSerializer(PsiType psiType) {
+        PsiType elementType = PsiUtils.getListElementType(psiType);
+        if (elementType == null) {
+            return null;
+        }
+
+        return handledTypes.get(elementType.getCanonicalText());
+    }
+}
@@ -0,0 +1,96 @@
+package net.phonex.intellij.android.dbmodel.typeserializers;
+
+import com.intellij.openapi.components.ServiceManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.PsiType;
+import com.intellij.psi.util.PsiModificationTracker;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Project service resolving serializers through the default factory chain. Resolutions are cached by
+ * canonical type text, cache is dropped on changes outside of code blocks, i.e., of declarations serializer
+ * choice depends on. Edits in method bodies keep it. Within a generation run, use {@link #newRun()} so each type
+ * is resolved once although the run itself changes declarations. Safe for concurrent readers, as PSI cannot
+ * change while a read action is running.
+ */
+public class SerializerResolver implements TypeSerializerFactory {
+    private final Project mProject;
+    private final TypeSerializerFactory mChain;
+    private final ConcurrentMap<String, TypeSerializer> mCache = new ConcurrentHashMap<String, TypeSerializer>();
+    private final AtomicLong mModificationCount = new AtomicLong(-1);
+
+    public SerializerResolver(Project project) {
+        mProject = project;
+        mChain = createDefaultChain();
+    }
+
+    public static SerializerResolver getInstance(Project project) {
+        return ServiceManager.getService(project, SerializerResolver.class);
+    }
+
+    /**
+     * Default serializer chain, first matching factory wins.
+     */
+    public static TypeSerializerFactory createDefaultChain() {
+        return new ChainSerializerFactory(
+                new BundleSerializerFactory(),
+                new DateSerializerFactory(),
+                new EnumerationSerializerFactory(),
+                new ParcelableListSerializerFactory(),
+                new StringListSerializerFactory(),
+                new PrimitiveListSerializerFactory(),
+                new PrimitiveTypeSerializerFactory(),
+                new PrimitiveArraySerializerFactory(),
+                new ListSerializerFactory(),
+                new DirectParcelableSerializerFactory(),
+                new ParcelableSerializerFactory(),
+                new FieldwiseSerializerFactory(),
+                new SerializableSerializerFactory()
+        );
+    }
+
+    @Override
+    public TypeSerializer getSerializer(PsiType psiType) {
+        final long modificationCount = PsiModificationTracker.SERVICE.getInstance(mProject).getOutOfCodeBlockModificationCount();
+        if (mModificationCount.getAndSet(modificationCount) != modificationCount) {
+            mCache.clear();
+        }
+
+        final String key = psiType.getCanonicalText();
+        TypeSerializer serializer = mCache.get(key);
+        if (serializer == null) {
+            serializer = mChain.getSerializer(psiType);
+            TypeSerializer previous = mCache.putIfAbsent(key, serializer);
+            if (previous != null) {
+                serializer = previous;
+            }
+        }
+
+        return serializer;
+    }
+
+    /**
+     * Serializers for one generation run, e.g., a batch or all artifacts of a class. Each type is resolved once
+     * and kept for the whole run, insertions of the run do not invalidate it.
+     */
+    public TypeSerializerFactory newRun() {
+        return new TypeSerializerFactory() {
+            private final ConcurrentMap<String, TypeSerializer> mRunCache = new ConcurrentHashMap<String, TypeSerializer>();
+
+            @Override
+            public TypeSerializer getSerializer(PsiType psiType) {
+                final String key = psiType.getCanonicalText();
+                TypeSerializer serializer = mRunCache.get(key);
+                if (serializer == null) {
+                    serializer = SerializerResolver.this.getSerializer(psiType);
+                    mRunCache.put(key, serializer);
+                }
+
+                return serializer;
+            }
+        };
+    }
+}
@@ -0,0 +1,22 @@
+package net.phonex.intellij.android.dbmodel.typeserializers;
+
+import com.intellij.psi.PsiType;
+import net.phonex.intellij.android.dbmodel.typeserializers.serializers.StringListSerializer;
+import net.phonex.intellij.android.dbmodel.util.PsiUtils;
+
+/**
+ * Serializer factory for List&lt;String&gt; fields, uses writeStringList instead of reflective writeList.
+ */
+public class StringListSerializerFactory implements TypeSerializerFactory {
+    private final StringListSerializer mSerializer = new StringListSerializer();
+
+    @Override
+    public TypeSerializer getSerializer(PsiType psiType) {
+        PsiType elementType = PsiUtils.getListElementType(psiType);
+        if (elementType != null && "java.lang.String".equals(elementType.getCanonicalText())) {
+            return mSerializer;
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,26 @@
+package net.phonex.intellij.android.dbmodel.typeserializers.serializers;
+
+import com.intellij.psi.PsiField;
+import net.phonex.intellij.android.dbmodel.typeserializers.TypeSerializer;
+
+/**
+ * Serializer for final Parcelable classes. Writes a presence byte followed by the object written by its own
+ * writeToParcel(), reads directly through T.CREATOR. No class name is written to the parcel.
+ */
+public class DirectParcelableSerializer implements TypeSerializer {
+    @Override
+    public String writeValue(PsiField field, String parcel, String flags) {
+        String fieldName = field.getName();
+        String format = "if (this.%s == null) { %s.writeByte((byte) 0); } else {"
+                + "%s.writeByte((byte) 1);"
+                + "this.%s.writeToParcel(%s, %s);"
+                + "}";
+        return String.format(format, fieldName, parcel, parcel, fieldName, parcel, flags);
+    }
+
+    @Override
+    public String readValue(PsiField field, String parcel) {
+        return String.format("this.%s = %s.readByte() == 0 ? null : %s.CREATOR.createFromParcel(%s);",
+                field.getName(), parcel, field.getType().getCanonicalText(), parcel);
+    }
+}
@@ -0,0 +1,34 @@
+package net.phonex.intellij.android.dbmodel.typeserializers.serializers;
+
+import com.intellij.psi.PsiField;
+import net.phonex.intellij.android.dbmodel.typeserializers.TypeSerializer;
+
+/**
+ * Serializer for project classes with generated field-wise codec. Writes a presence byte followed by
+ * the fields written by the generated writeFieldsToParcel(), the object is read back by readFieldsFromParcel()
+ * on a new instance. Replaces Java serialization of the field.
+ */
+public class FieldwiseSerializer implements TypeSerializer {
+    public static final String WRITE_METHOD = "writeFieldsToParcel";
+    public static final String READ_METHOD = "readFieldsFromParcel";
+
+    @Override
+    public String writeValue(PsiField field, String parcel, String flags) {
+        String fieldName = field.getName();
+        String format = "if (this.%s == null) { %s.writeByte((byte) 0); } else {"
+                + "%s.writeByte((byte) 1);"
+                + "this.%s.%s(%s, %s);"
+                + "}";
+        return String.format(format, fieldName, parcel, parcel, fieldName, WRITE_METHOD, parcel, flags);
+    }
+
+    @Override
+    public String readValue(PsiField field, String parcel) {
+        String fieldName = field.getName();
+        String format = "if (%s.readByte() == 0) { this.%s = null; } else {"
+                + "this.%s = new %s();"
+                + "this.%s.%s(%s);"
+                + "}";
+        return String.format(format, parcel, fieldName, fieldName, field.getType().getCanonicalText(), fieldName, READ_METHOD, parcel);
+    }
+}
@@ -0,0 +1,68 @@
+package net.phonex.intellij.android.dbmodel.typeserializers.serializers;
+
+import com.intellij.psi.PsiField;
+import net.phonex.intellij.android.dbmodel.typeserializers.TypeSerializer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Serializer for boxed primitives whose nullity is stored in a shared null bitmask written before the fields.
+ * Non-null values are written raw, without the type tag of Parcel.writeValue() and without
+ * class loader lookup on read.
+ */
+public class NullBitmaskPrimitiveSerializer implements TypeSerializer {
+    private static final Map<String, String> PARCEL_TYPES = new HashMap<String, String>();
+    static {
+        PARCEL_TYPES.put("java.lang.Byte", "Byte");
+        PARCEL_TYPES.put("java.lang.Double", "Double");
+        PARCEL_TYPES.put("java.lang.Float", "Float");
+        PARCEL_TYPES.put("java.lang.Integer", "Int");
+        PARCEL_TYPES.put("java.lang.Long", "Long");
+    }
+
+    private final String typeName;
+    private final String maskName;
+    private final String bit;
+
+    /**
+     * @param typeName boxed type canonical name
+     * @param maskName local variable holding the null mask
+     * @param bitIndex bit of this field in the mask
+     * @param wideMask true if the mask is long
+     */
+    public NullBitmaskPrimitiveSerializer(String typeName, String maskName, int bitIndex, boolean wideMask) {
+        this.typeName = typeName;
+        this.maskName = maskName;
+        this.bit = (wideMask ? "1L << " : "1 << ") + bitIndex;
+    }
+
+    public static boolean isSupported(String typeName) {
+        return PARCEL_TYPES.containsKey(typeName) || "java.lang.Boolean".equals(typeName);
+    }
+
+    /**
+     * Statement setting the field bit in the mask if the field is null.
+     */
+    public String writeMask(PsiField field) {
+        return "if (this." + field.getName() + " == null) " + maskName + " |= " + bit + ";";
+    }
+
+    @Override
+    public String writeValue(PsiField field, String parcel, String flags) {
+        final String value = "this." + field.getName();
+        if ("java.lang.Boolean".equals(typeName)) {
+            return "if (" + value + " != null) " + parcel + ".writeByte(" + value + " ? (byte) 1 : (byte) 0);";
+        }
+
+        return "if (" + value + " != null) " + parcel + ".write" + PARCEL_TYPES.get(typeName) + "(" + value + ");";
+    }
+
+    @Override
+    public String readValue(PsiField field, String parcel) {
+        final String read = "java.lang.Boolean".equals(typeName)
+                ? "(java.lang.Boolean) (" + parcel + ".readByte() != 0)"
+                : "(" + typeName + ") " + parcel + ".read" + PARCEL_TYPES.get(typeName) + "()";
+        return "this." + field.getName() + " = (" + maskName + " & (" + bit + ")) != 0 ? null : " + read + ";";
+    }
+}
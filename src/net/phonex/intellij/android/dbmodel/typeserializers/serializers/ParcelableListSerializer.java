@@ -10,12 +10,12 @@ import net.phonex.intellij.android.dbmodel.util.PsiUtils;
 public class ParcelableListSerializer implements TypeSerializer {
     @Override
     public String writeValue(PsiField field, String parcel, String flags) {
-        return String.format("%s.writeTypedList(%s);", parcel, field.getName());
+        return String.format("%s.writeTypedList(this.%s);", parcel, field.getName());
     }
 
     @Override
     public String readValue(PsiField field, String parcel) {
-        String paramType = PsiUtils.getResolvedGenerics(field.getType()).get(0).getCanonicalText();
-        return String.format("%s.readTypedList(%s, %s.CREATOR);", parcel, field.getName(), paramType);
+        String paramType = PsiUtils.getListElementType(field.getType()).getCanonicalText();
+        return String.format("this.%s = %s.createTypedArrayList(%s.CREATOR);", field.getName(), parcel, paramType);
     }
 }
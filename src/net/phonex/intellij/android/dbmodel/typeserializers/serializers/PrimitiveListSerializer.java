@@ -0,0 +1,50 @@
+package net.phonex.intellij.android.dbmodel.typeserializers.serializers;
+
+import com.intellij.psi.PsiField;
+import net.phonex.intellij.android.dbmodel.typeserializers.TypeSerializer;
+import org.apache.xmlbeans.impl.common.NameUtil;
+
+/**
+ * Serializer for lists of boxed primitives. Writes the list size (-1 for null list) followed by raw values,
+ * each preceded by a byte marking null elements.
+ */
+public class PrimitiveListSerializer implements TypeSerializer {
+
+    private final String elementType;
+    private final String parcelType;
+
+    /**
+     * @param elementType boxed element type canonical name
+     * @param parcelType  Parcel read/write method suffix, e.g. Int
+     */
+    public PrimitiveListSerializer(String elementType, String parcelType) {
+        this.elementType = elementType;
+        this.parcelType = parcelType;
+    }
+
+    @Override
+    public String writeValue(PsiField field, String parcel, String flags) {
+        String fieldName = field.getName();
+        String format = "if (this.%s == null) { %s.writeInt(-1); } else {"
+                + "%s.writeInt(this.%s.size());"
+                + "for (%s tmpItem : this.%s) {"
+                + "if (tmpItem == null) { %s.writeByte((byte) 0); } else { %s.writeByte((byte) 1); %s.write%s(tmpItem); }"
+                + "}"
+                + "}";
+        return String.format(format, fieldName, parcel, parcel, fieldName, elementType, fieldName,
+                parcel, parcel, parcel, parcelType);
+    }
+
+    @Override
+    public String readValue(PsiField field, String parcel) {
+        String fieldName = field.getName();
+        String tmpFieldName = NameUtil.upperCaseFirstLetter(fieldName);
+        String format = "int tmp%sSize = %s.readInt();"
+                + "if (tmp%sSize < 0) { this.%s = null; } else {"
+                + "this.%s = new java.util.ArrayList<%s>(tmp%sSize);"
+                + "for (int i = 0; i < tmp%sSize; i++) { this.%s.add(%s.readByte() == 0 ? null : %s.valueOf(%s.read%s())); }"
+                + "}";
+        return String.format(format, tmpFieldName, parcel, tmpFieldName, fieldName,
+                fieldName, elementType, tmpFieldName, tmpFieldName, fieldName, parcel, elementType, parcel, parcelType);
+    }
+}
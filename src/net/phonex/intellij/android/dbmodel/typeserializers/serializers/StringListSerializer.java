@@ -0,0 +1,20 @@
+package net.phonex.intellij.android.dbmodel.typeserializers.serializers;
+
+import com.intellij.psi.PsiField;
+import net.phonex.intellij.android.dbmodel.typeserializers.TypeSerializer;
+
+/**
+ * Serializer for List&lt;String&gt; fields.
+ */
+public class StringListSerializer implements TypeSerializer {
+
+    @Override
+    public String writeValue(PsiField field, String parcel, String flags) {
+        return parcel + ".writeStringList(this." + field.getName() + ");";
+    }
+
+    @Override
+    public String readValue(PsiField field, String parcel) {
+        return "this." + field.getName() + " = " + parcel + ".createStringArrayList();";
+    }
+}
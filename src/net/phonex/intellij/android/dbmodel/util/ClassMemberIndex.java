@@ -0,0 +1,145 @@
+package net.phonex.intellij.android.dbmodel.util;
+
+import com.intellij.psi.*;
+import com.intellij.psi.util.TypeConversionUtil;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Member lookup table of one class, built once per generation run. Fields are indexed by name including
+ * inherited ones, as {@link PsiUtils#findField(PsiClass, String)}, methods of the class itself by erased signature,
+ * as {@link PsiUtils#findMethod(PsiClass, String, String...)}. Generator records inserted and replaced members,
+ * deleted members are detected by validity on lookup.
+ */
+public class ClassMemberIndex {
+    private final PsiClass mClass;
+    private final Map<String, FieldDef> mFields = new HashMap<String, FieldDef>();
+    private final Map<String, PsiField> mInheritedFields = new HashMap<String, PsiField>();
+    private final Map<String, PsiMethod> mMethods = new HashMap<String, PsiMethod>();
+
+    public ClassMemberIndex(PsiClass cls) {
+        mClass = cls;
+        for (PsiField field : cls.getFields()) {
+            putField(field, false);
+        }
+
+        for (PsiField field : cls.getAllFields()) {
+            if (field.getContainingClass() != cls && !mInheritedFields.containsKey(field.getName())) {
+                mInheritedFields.put(field.getName(), field);
+            }
+        }
+
+        for (PsiMethod method : cls.getMethods()) {
+            putMethod(method, false);
+        }
+    }
+
+    /**
+     * Field declared in the class or inherited, with its literal initializer.
+     */
+    public FieldDef findField(String fieldName) {
+        final FieldDef def = mFields.get(fieldName);
+        if (def != null && def.field.isValid()) {
+            return def;
+        }
+
+        final PsiField inherited = mInheritedFields.get(fieldName);
+        return inherited != null && inherited.isValid() ? createFieldDef(inherited) : null;
+    }
+
+    /**
+     * Field declared in the class itself.
+     */
+    public PsiField findOwnField(String fieldName) {
+        final FieldDef def = mFields.get(fieldName);
+        return def != null && def.field.isValid() ? def.field : null;
+    }
+
+    /**
+     * Method declared in the class with the given canonical parameter types, type arguments are ignored.
+     */
+    public PsiMethod findMethod(String methodName, String... arguments) {
+        StringBuilder sb = new StringBuilder(methodName).append('(');
+        for (String argument : arguments) {
+            sb.append(eraseTypeArguments(argument)).append(',');
+        }
+
+        final PsiMethod method = mMethods.get(sb.append(')').toString());
+        return method != null && method.isValid() ? method : null;
+    }
+
+    /**
+     * Records a member inserted to the class. An existing valid member of the same name or signature
+     * stays indexed, as lookups return the first declared one.
+     */
+    public void memberAdded(PsiElement element) {
+        putMember(element, false);
+    }
+
+    /**
+     * Records a member replacing an indexed one.
+     */
+    public void memberReplaced(PsiElement element) {
+        putMember(element, true);
+    }
+
+    private void putMember(PsiElement element, boolean replace) {
+        if (!(element instanceof PsiMember) || ((PsiMember) element).getContainingClass() != mClass) {
+            return;
+        }
+
+        if (element instanceof PsiField) {
+            putField((PsiField) element, replace);
+        } else if (element instanceof PsiMethod) {
+            putMethod((PsiMethod) element, replace);
+        }
+    }
+
+    private void putField(PsiField field, boolean replace) {
+        final FieldDef prev = mFields.get(field.getName());
+        if (replace || prev == null || !prev.field.isValid()) {
+            mFields.put(field.getName(), createFieldDef(field));
+        }
+    }
+
+    private void putMethod(PsiMethod method, boolean replace) {
+        StringBuilder sb = new StringBuilder(method.getName()).append('(');
+        for (PsiParameter parameter : method.getParameterList().getParameters()) {
+            sb.append(TypeConversionUtil.erasure(parameter.getType()).getCanonicalText()).append(',');
+        }
+
+        final String key = sb.append(')').toString();
+        final PsiMethod prev = mMethods.get(key);
+        if (replace || prev == null || !prev.isValid()) {
+            mMethods.put(key, method);
+        }
+    }
+
+    private static FieldDef createFieldDef(PsiField field) {
+        String initializerString = null;
+        final PsiExpression initializer = field.getInitializer();
+        if (initializer instanceof PsiLiteralExpression){
+            initializerString = initializer.getText();
+        }
+
+        return new FieldDef(field.getName(), initializerString, field);
+    }
+
+    private static String eraseTypeArguments(String type) {
+        StringBuilder sb = new StringBuilder(type.length());
+        int depth = 0;
+        for (int i = 0; i < type.length(); i++) {
+            final char c = type.charAt(i);
+            if (c == '<') {
+                depth++;
+            } else if (c == '>') {
+                depth--;
+            } else if (depth == 0) {
+                sb.append(c);
+            }
+        }
+
+        return sb.toString();
+    }
+}
@@ -0,0 +1,26 @@
+package net.phonex.intellij.android.dbmodel.util;
+
+import com.intellij.psi.PsiField;
+
+import java.util.List;
+
+/**
+ * Index definition for CREATE INDEX generation, single or composite.
+ */
+public class IndexDef {
+    public final List<PsiField> fields;
+    public final boolean unique;
+
+    public IndexDef(List<PsiField> fields, boolean unique) {
+        this.fields = fields;
+        this.unique = unique;
+    }
+
+    @Override
+    public String toString() {
+        return "IndexDef{" +
+                "fields=" + fields +
+                ", unique=" + unique +
+                '}';
+    }
+}
@@ -7,6 +7,8 @@ import com.intellij.openapi.editor.Editor;
 import com.intellij.psi.*;
 import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.psi.util.PsiTypesUtil;
+import com.intellij.psi.util.PsiUtil;
+import net.phonex.intellij.android.dbmodel.CodeGenerator;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -86,6 +88,32 @@ final public class PsiUtils {
         return psiTypes;
     }
 
+    /**
+     * Returns element type of the java.util.List type, wildcard bound is used for wildcards.
+     * Returns null if the type is not a java.util.List or is a raw List.
+     *
+     * @param type
+     * @return
+     */
+    public static PsiType getListElementType(PsiType type) {
+        PsiClass parameterClass = PsiTypesUtil.getPsiClass(type);
+        if (parameterClass == null || !"java.util.List".equals(parameterClass.getQualifiedName())) {
+            return null;
+        }
+
+        PsiType[] parameters = ((PsiClassType) type).getParameters();
+        if (parameters.length != 1) {
+            return null;
+        }
+
+        PsiType elementType = parameters[0];
+        if (elementType instanceof PsiWildcardType) {
+            elementType = ((PsiWildcardType) elementType).getBound();
+        }
+
+        return elementType;
+    }
+
     public static boolean isOfType(PsiType type, String canonicalName) {
         if (type.getCanonicalText().equals(canonicalName)) {
             return true;
@@ -113,6 +141,121 @@ final public class PsiUtils {
         return type.getCanonicalText();
     }
 
+    /**
+     * Returns fields offered for generation by default, i.e., non-static ones including inherited fields,
+     * without the generated dirty mask.
+     *
+     * @param cls
+     * @return
+     */
+    public static List<PsiField> getModelFields(PsiClass cls) {
+        List<PsiField> fields = new ArrayList<PsiField>();
+        for (PsiField field : cls.getAllFields()) {
+            // Exclude static fields and generated dirty mask
+            if (!field.hasModifierProperty(PsiModifier.STATIC) && !CodeGenerator.DIRTY_MASK_NAME.equals(field.getName())) {
+                fields.add(field);
+            }
+        }
+
+        return fields;
+    }
+
+    /**
+     * Returns fields taking part in Java serialization of the class declared in the class itself, i.e., non-static
+     * and non-transient ones. Inherited fields are not accessible to the generated codec.
+     *
+     * @param cls
+     * @return
+     */
+    public static List<PsiField> getSerializableFields(PsiClass cls) {
+        List<PsiField> fields = new ArrayList<PsiField>();
+        for (PsiField field : cls.getFields()) {
+            if (!field.hasModifierProperty(PsiModifier.STATIC) && !field.hasModifierProperty(PsiModifier.TRANSIENT)) {
+                fields.add(field);
+            }
+        }
+
+        return fields;
+    }
+
+    /**
+     * Returns text of the element suitable for structural comparison. Whitespace and comments are dropped,
+     * tokens are separated by a single space and class references are replaced with qualified names of the
+     * resolved classes, so shortened and fully qualified references compare equal.
+     *
+     * @param element
+     * @return
+     */
+    public static String getNormalizedText(PsiElement element) {
+        StringBuilder sb = new StringBuilder();
+        appendNormalizedText(element, sb);
+        return sb.toString();
+    }
+
+    private static void appendNormalizedText(PsiElement element, StringBuilder sb) {
+        if (element instanceof PsiWhiteSpace || element instanceof PsiComment) {
+            return;
+        }
+
+        if (element instanceof PsiJavaCodeReferenceElement) {
+            final PsiJavaCodeReferenceElement reference = (PsiJavaCodeReferenceElement) element;
+            final PsiElement resolved = reference.resolve();
+            if (resolved instanceof PsiClass && ((PsiClass) resolved).getQualifiedName() != null) {
+                sb.append(((PsiClass) resolved).getQualifiedName()).append(' ');
+                if (reference.getParameterList() != null) {
+                    appendNormalizedText(reference.getParameterList(), sb);
+                }
+                return;
+            }
+        }
+
+        final PsiElement firstChild = element.getFirstChild();
+        if (firstChild == null) {
+            sb.append(element.getText()).append(' ');
+            return;
+        }
+
+        for (PsiElement child = firstChild; child != null; child = child.getNextSibling()) {
+            appendNormalizedText(child, sb);
+        }
+    }
+
+    /**
+     * Checks whether any reference expression in the element resolves to the target, e.g., a constant.
+     */
+    public static boolean references(PsiElement element, PsiElement target) {
+        for (PsiReferenceExpression reference : PsiTreeUtil.findChildrenOfType(element, PsiReferenceExpression.class)) {
+            if (target.equals(reference.resolve())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns the statement containing the last assignment to the field in the block, null if there is none.
+     * The statement is a direct child of a code block, e.g., an if statement without braces around the assignment.
+     */
+    public static PsiStatement findLastAssignment(PsiCodeBlock block, PsiField field) {
+        if (field == null) {
+            return null;
+        }
+
+        PsiStatement last = null;
+        for (PsiAssignmentExpression assignment : PsiTreeUtil.findChildrenOfType(block, PsiAssignmentExpression.class)) {
+            final PsiExpression target = PsiUtil.skipParenthesizedExprDown(assignment.getLExpression());
+            if (target instanceof PsiReferenceExpression && field.equals(((PsiReferenceExpression) target).resolve())) {
+                last = PsiTreeUtil.getParentOfType(assignment, PsiStatement.class);
+                while (last != null && !(last.getParent() instanceof PsiCodeBlock)) {
+                    last = PsiTreeUtil.getParentOfType(last, PsiStatement.class, true);
+                }
+            }
+        }
+
+        return last;
+    }
+
     public static PsiElement addLast(PsiElement elem, PsiElement where){
         return where.addBefore(elem, where.getLastChild());
     }
@@ -0,0 +1,40 @@
+package net.phonex.intellij.android.dbmodel;
+
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.psi.PsiClass;
+import com.intellij.testFramework.fixtures.LightCodeInsightFixtureTestCase;
+import net.phonex.intellij.android.dbmodel.util.PsiUtils;
+
+import java.util.EnumSet;
+
+public class CodeGeneratorTest extends LightCodeInsightFixtureTestCase {
+
+    public void testBatchRerunKeepsMemberCount() throws Exception {
+        final PsiClass psiClass = myFixture.addClass("package model;\n" +
+                "public class Contact {\n" +
+                "    private long id;\n" +
+                "    private String displayName;\n" +
+                "    private int count;\n" +
+                "}\n");
+
+        generateBatch(psiClass);
+        final int fields = psiClass.getFields().length;
+        final int methods = psiClass.getMethods().length;
+        final int innerClasses = psiClass.getInnerClasses().length;
+
+        generateBatch(psiClass);
+        assertEquals(fields, psiClass.getFields().length);
+        assertEquals(methods, psiClass.getMethods().length);
+        assertEquals(innerClasses, psiClass.getInnerClasses().length);
+    }
+
+    private void generateBatch(final PsiClass psiClass) {
+        new WriteCommandAction.Simple(getProject(), psiClass.getContainingFile()) {
+            @Override
+            protected void run() throws Throwable {
+                new CodeGenerator(psiClass, PsiUtils.getModelFields(psiClass)).setReplaceExisting(true)
+                        .generateAll(EnumSet.range(Artifact.FIELDS, Artifact.DIRTY_TRACKING));
+            }
+        }.execute();
+    }
+}
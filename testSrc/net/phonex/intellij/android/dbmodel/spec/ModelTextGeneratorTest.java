@@ -0,0 +1,178 @@
+package net.phonex.intellij.android.dbmodel.spec;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class ModelTextGeneratorTest {
+
+    private FieldSpec id;
+    private FieldSpec displayName;
+    private FieldSpec count;
+    private FieldSpec created;
+    private ModelTextGenerator underTest;
+
+    @Before
+    public void setUp() throws Exception {
+        id = FieldSpec.builder("id", "long").primitive(true).sqlType("INTEGER DEFAULT 0").build();
+        displayName = FieldSpec.builder("displayName", "java.lang.String").sqlType("TEXT").build();
+        count = FieldSpec.builder("count", "int").primitive(true).sqlType("INTEGER DEFAULT 0").build();
+        created = FieldSpec.builder("created", "java.util.Date").sqlType("INTEGER DEFAULT 0").build();
+
+        List<ModelSpec.IndexSpec> indexes = new ArrayList<ModelSpec.IndexSpec>();
+        indexes.add(new ModelSpec.IndexSpec(Arrays.asList(displayName, count), true));
+        underTest = new ModelTextGenerator(new ModelSpec("Contact", "net.phonex.Contact",
+                Arrays.asList(id, displayName, count, created), indexes));
+    }
+
+    @Test
+    public void createTableDefinesEveryColumn() throws Exception {
+        assertThat(underTest.generateCreateTable(), is(
+                "public static final String CREATE_TABLE = \"CREATE TABLE IF NOT EXISTS \"\n" +
+                "+ TABLE\n" +
+                "+ \" (\"\n" +
+                "+ FIELD_ID              + \" INTEGER PRIMARY KEY AUTOINCREMENT, \"\n" +
+                "+ FIELD_DISPLAY_NAME    + \" TEXT, \"\n" +
+                "+ FIELD_COUNT           + \" INTEGER DEFAULT 0, \"\n" +
+                "+ FIELD_CREATED         + \" INTEGER DEFAULT 0 \"\n" +
+                "+ \");\";\n"));
+    }
+
+    @Test
+    public void createIndexesNamesIndexByColumns() throws Exception {
+        assertThat(underTest.generateCreateIndexes(), is(
+                "public static final String[] CREATE_INDEXES = new String[] {\n" +
+                "\"CREATE UNIQUE INDEX IF NOT EXISTS idx_\" + TABLE + \"_display_name_count ON \" + TABLE" +
+                " + \"(\" + FIELD_DISPLAY_NAME + \", \" + FIELD_COUNT + \")\"\n" +
+                "};\n"));
+    }
+
+    @Test
+    public void bindToBindsNullForNullableFields() throws Exception {
+        assertThat(underTest.generateBindTo(), is(
+                "public void bindTo(android.database.sqlite.SQLiteStatement stmt) {\n" +
+                "stmt.clearBindings();\n" +
+                "stmt.bindLong(1, this.id);\n" +
+                "if (this.displayName == null) {\n" +
+                "stmt.bindNull(2);\n" +
+                "} else {\n" +
+                "stmt.bindString(2, this.displayName);\n" +
+                "}\n" +
+                "stmt.bindLong(3, this.count);\n" +
+                "if (this.created == null) {\n" +
+                "stmt.bindNull(4);\n" +
+                "} else {\n" +
+                "stmt.bindLong(4, this.created.getTime());\n" +
+                "}\n" +
+                "}\n"));
+    }
+
+    @Test
+    public void bindToBindsCharAsString() throws Exception {
+        FieldSpec grade = FieldSpec.builder("grade", "char").primitive(true).sqlType("TEXT").build();
+        FieldSpec initial = FieldSpec.builder("initial", "java.lang.Character").sqlType("TEXT").build();
+        ModelTextGenerator generator = new ModelTextGenerator(new ModelSpec("Note", "net.phonex.Note",
+                Arrays.asList(grade, initial), new ArrayList<ModelSpec.IndexSpec>()));
+
+        assertThat(generator.getSqlBinder(grade, "stmt", "1"), is("stmt.bindString(1, String.valueOf(this.grade));\n"));
+        assertThat(generator.getSqlBinder(initial, "stmt", "2"), is(
+                "if (this.initial == null) {\n" +
+                "stmt.bindNull(2);\n" +
+                "} else {\n" +
+                "stmt.bindString(2, String.valueOf(this.initial));\n" +
+                "}\n"));
+    }
+
+    @Test
+    public void pageNextSqlSearchesPageIndex() throws Exception {
+        FieldSpec updated = FieldSpec.builder("updated", "long").primitive(true).sqlType("INTEGER DEFAULT 0").sortKey(true).build();
+        ModelTextGenerator generator = new ModelTextGenerator(new ModelSpec("Note", "net.phonex.Note",
+                Arrays.asList(id, updated), new ArrayList<ModelSpec.IndexSpec>()));
+
+        assertThat(generator.generatePageNextSql(), containsString(
+                "+ \" WHERE \" + FIELD_UPDATED + \" >= ? AND (\" + FIELD_UPDATED + \" > ? OR \" + FIELD_ID + \" > ?)\"\n"));
+    }
+
+    @Test
+    public void joinAliasesKeywordNamedForeignKey() throws Exception {
+        ForeignKeySpec foreignKey = new ForeignKeySpec("net.phonex.Order", "orders", "id", "id", null, null,
+                Arrays.asList("FIELD_ID", "FIELD_TOTAL"));
+        FieldSpec order = FieldSpec.builder("order", "net.phonex.Order").sqlType(foreignKey.getSqlType()).foreignKey(foreignKey).build();
+        ModelTextGenerator generator = new ModelTextGenerator(new ModelSpec("Item", "net.phonex.Item",
+                Arrays.asList(id, order), new ArrayList<ModelSpec.IndexSpec>()));
+
+        assertThat(generator.generateJoinTables(), is(
+                "public static final String JOIN_TABLES = TABLE\n" +
+                "+ \" LEFT JOIN \" + net.phonex.Order.TABLE + \" AS j_order ON \" + TABLE + \".\" + FIELD_ORDER + \" = j_order.id\";\n"));
+        assertThat(generator.generateJoinProjection(), containsString(
+                "\"j_order.\" + net.phonex.Order.FIELD_TOTAL + \" AS order_\" + net.phonex.Order.FIELD_TOTAL"));
+    }
+
+    @Test
+    public void upgradeAddsNewColumns() throws Exception {
+        TableSchema previous = TableSchema.parse("CREATE TABLE contact (id INTEGER PRIMARY KEY AUTOINCREMENT, displayName TEXT)");
+
+        assertThat(underTest.generateUpgrade(2, previous), is(
+                "public static final String[] UPGRADE_TO_V2 = new String[] {\n" +
+                "\"ALTER TABLE \" + TABLE + \" ADD COLUMN count INTEGER DEFAULT 0\",\n" +
+                "\"ALTER TABLE \" + TABLE + \" ADD COLUMN created INTEGER DEFAULT 0\"\n" +
+                "};\n"));
+    }
+
+    @Test
+    public void upgradeRebuildsTableWithDroppedColumn() throws Exception {
+        TableSchema previous = TableSchema.parse("CREATE TABLE contact (id INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + "displayName TEXT, count INTEGER DEFAULT 0, created INTEGER DEFAULT 0, note TEXT)");
+
+        assertThat(underTest.generateUpgrade(3, previous), is(
+                "public static final String[] UPGRADE_TO_V3 = new String[] {\n" +
+                "\"CREATE TABLE \" + TABLE + \"_new_v3 (\"\n" +
+                "+ \"id INTEGER PRIMARY KEY AUTOINCREMENT, \"\n" +
+                "+ \"displayName TEXT, \"\n" +
+                "+ \"count INTEGER DEFAULT 0, \"\n" +
+                "+ \"created INTEGER DEFAULT 0\"\n" +
+                "+ \")\",\n" +
+                "\"INSERT INTO \" + TABLE + \"_new_v3 (id, displayName, count, created) SELECT id, displayName, count, created FROM \" + TABLE,\n" +
+                "\"DROP TABLE \" + TABLE,\n" +
+                "\"ALTER TABLE \" + TABLE + \"_new_v3 RENAME TO \" + TABLE,\n" +
+                "\"CREATE UNIQUE INDEX IF NOT EXISTS idx_\" + TABLE + \"_display_name_count ON \" + TABLE" +
+                " + \"(\" + FIELD_DISPLAY_NAME + \", \" + FIELD_COUNT + \")\"\n" +
+                "};\n"));
+    }
+
+    @Test
+    public void upgradeRebuildRecreatesFullTextIndex() throws Exception {
+        FieldSpec title = FieldSpec.builder("title", "java.lang.String").sqlType("TEXT").searchable(true).build();
+        ModelTextGenerator generator = new ModelTextGenerator(new ModelSpec("Note", "net.phonex.Note",
+                Arrays.asList(id, title), new ArrayList<ModelSpec.IndexSpec>()));
+        TableSchema previous = TableSchema.parse("CREATE TABLE note (id INTEGER PRIMARY KEY AUTOINCREMENT, title TEXT, body TEXT)");
+
+        final String upgrade = generator.generateUpgrade(2, previous);
+        assertThat(upgrade, containsString("\"DROP TABLE IF EXISTS \" + FTS_TABLE,\n"));
+        assertThat(upgrade, containsString("\"CREATE TRIGGER IF NOT EXISTS \" + TABLE + \"_fts_ai AFTER INSERT ON \" + TABLE"));
+        assertThat(upgrade, containsString("VALUES ('rebuild')\"\n};\n"));
+    }
+
+    @Test
+    public void upgradeRebuildsTableWithChangedDefinition() throws Exception {
+        TableSchema previous = TableSchema.parse("CREATE TABLE contact (id INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + "displayName TEXT, count TEXT, created INTEGER DEFAULT 0)");
+
+        assertThat(underTest.generateUpgrade(4, previous), containsString("DROP TABLE"));
+    }
+
+    @Test
+    public void upgradeOfCurrentSchemaIsEmpty() throws Exception {
+        TableSchema previous = TableSchema.parse("CREATE TABLE contact (id INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + "displayName TEXT, count INTEGER DEFAULT 0, created INTEGER DEFAULT 0)");
+
+        assertThat(underTest.generateUpgrade(5, previous), is("public static final String[] UPGRADE_TO_V5 = new String[] {\n};\n"));
+    }
+}